@@ -0,0 +1,159 @@
+# ---------------------------------------------------------------------- #
+# Target DBMS:           MySQL                                           #
+# Purpose:               Product search latency on a 1M product catalog  #
+# ---------------------------------------------------------------------- #
+# Builds two copies of a 1,000,000 row products table in a scratch
+# database: one with only the primary and foreign keys (the old schema)
+# and one with the search indexes from the create_database_*.sql scripts.
+# Each filter combination used by GET /products is then run against both,
+# first in the old "(column = ? OR ? = -1)" shape and then in the shape
+# MySqlProductDao.search builds now, with only the supplied predicates.
+# SUM(stock) stands in for SELECT * so every matching row is still read
+# without printing it. Each timing is reported in milliseconds.
+#
+# Run with: mysql -u root -p < benchmark_product_search.sql
+
+USE sys;
+
+DROP DATABASE IF EXISTS product_search_benchmark;
+
+CREATE DATABASE product_search_benchmark;
+
+USE product_search_benchmark;
+
+CREATE TABLE categories (
+    category_id INT NOT NULL,
+    PRIMARY KEY (category_id)
+);
+
+CREATE TABLE products_before (
+    product_id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    category_id INT NOT NULL,
+    description TEXT,
+    subcategory VARCHAR(20),
+    image_url VARCHAR(200),
+    stock INT NOT NULL DEFAULT 0,
+    featured BOOL NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id),
+    FOREIGN KEY (category_id) REFERENCES categories(category_id)
+);
+
+CREATE TABLE products_after (
+    product_id INT NOT NULL AUTO_INCREMENT,
+    name VARCHAR(100) NOT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    category_id INT NOT NULL,
+    description TEXT,
+    subcategory VARCHAR(20),
+    image_url VARCHAR(200),
+    stock INT NOT NULL DEFAULT 0,
+    featured BOOL NOT NULL DEFAULT 0,
+    PRIMARY KEY (product_id),
+    INDEX idx_products_category_subcategory_price (category_id, subcategory, price),
+    INDEX idx_products_category_price (category_id, price),
+    INDEX idx_products_subcategory_price (subcategory, price),
+    INDEX idx_products_price (price),
+    FOREIGN KEY (category_id) REFERENCES categories(category_id)
+);
+
+CREATE TABLE digits (d INT NOT NULL);
+INSERT INTO digits VALUES (0), (1), (2), (3), (4), (5), (6), (7), (8), (9);
+
+INSERT INTO categories (category_id)
+SELECT a.d * 10 + b.d + 1 FROM digits a, digits b;
+
+# 100 categories, 20 subcategories and prices from 1.00 to 500.00.
+INSERT INTO products_before (name, price, category_id, description, subcategory, image_url, stock, featured)
+SELECT CONCAT('Product ', n),
+       1 + (n * 7919 % 49900) / 100,
+       n % 100 + 1,
+       'Benchmark product',
+       CONCAT('Sub', n % 20),
+       'no-image.jpg',
+       n % 50,
+       n % 97 = 0
+FROM (SELECT a.d + b.d * 10 + c.d * 100 + e.d * 1000 + f.d * 10000 + g.d * 100000 AS n
+      FROM digits a, digits b, digits c, digits e, digits f, digits g) numbers;
+
+INSERT INTO products_after SELECT * FROM products_before;
+
+ANALYZE TABLE products_before, products_after;
+
+# ---------------------------------------------------------------------- #
+# Filter values, -1 and '' meaning "not supplied" in the old shape       #
+# ---------------------------------------------------------------------- #
+
+SET @cat = 42, @min = 100.00, @max = 120.00, @sub = 'Sub7', @none = -1, @empty = '';
+
+# category only
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @cat OR @cat = -1) AND (price >= @none OR @none = -1)
+  AND (price <= @none OR @none = -1) AND (subcategory = @empty OR @empty = '');
+SELECT 'category, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after WHERE category_id = @cat;
+SELECT 'category, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+# category and subcategory
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @cat OR @cat = -1) AND (price >= @none OR @none = -1)
+  AND (price <= @none OR @none = -1) AND (subcategory = @sub OR @sub = '');
+SELECT 'category + subcategory, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after WHERE category_id = @cat AND subcategory = @sub;
+SELECT 'category + subcategory, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+# category and price range
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @cat OR @cat = -1) AND (price >= @min OR @min = -1)
+  AND (price <= @max OR @max = -1) AND (subcategory = @empty OR @empty = '');
+SELECT 'category + price, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after WHERE category_id = @cat AND price >= @min AND price <= @max;
+SELECT 'category + price, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+# price range only
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @none OR @none = -1) AND (price >= @min OR @min = -1)
+  AND (price <= @max OR @max = -1) AND (subcategory = @empty OR @empty = '');
+SELECT 'price, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after WHERE price >= @min AND price <= @max;
+SELECT 'price, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+# subcategory and price range
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @none OR @none = -1) AND (price >= @min OR @min = -1)
+  AND (price <= @max OR @max = -1) AND (subcategory = @sub OR @sub = '');
+SELECT 'subcategory + price, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after WHERE subcategory = @sub AND price >= @min AND price <= @max;
+SELECT 'subcategory + price, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+# all four filters
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_before
+WHERE (category_id = @cat OR @cat = -1) AND (price >= @min OR @min = -1)
+  AND (price <= @max OR @max = -1) AND (subcategory = @sub OR @sub = '');
+SELECT 'all filters, before' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+SET @t = NOW(6);
+SELECT SUM(stock) FROM products_after
+WHERE category_id = @cat AND subcategory = @sub AND price >= @min AND price <= @max;
+SELECT 'all filters, after' AS query, TIMESTAMPDIFF(MICROSECOND, @t, NOW(6)) / 1000 AS ms;
+
+USE sys;
+
+DROP DATABASE product_search_benchmark;
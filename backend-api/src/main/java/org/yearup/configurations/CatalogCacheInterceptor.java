@@ -0,0 +1,61 @@
+package org.yearup.configurations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.yearup.data.cache.CatalogVersion;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Makes catalog GETs conditional, so an unchanged catalog costs neither a DAO call nor a Jackson pass.
+ * Every response carries the CatalogVersion ETag and Last-Modified date, and the configured Cache-Control.
+ * A request whose If-None-Match or If-Modified-Since still matches is answered with 304 before the controller runs.
+ */
+@Component
+public class CatalogCacheInterceptor implements HandlerInterceptor
+{
+    private final CatalogVersion catalogVersion;
+    private final String cacheControl;
+
+    /**
+     * @param catalogVersion is injected as a Bean, and moves on every catalog write.
+     * @param cacheControl is sent as the Cache-Control header of every catalog GET.
+     */
+    @Autowired
+    public CatalogCacheInterceptor(CatalogVersion catalogVersion,
+                                   @Value("${catalog.http.cache-control:public, max-age=60}") String cacheControl)
+    {
+        this.catalogVersion = catalogVersion;
+        this.cacheControl = cacheControl;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+    {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod()))
+        {
+            return true;
+        }
+
+        // An asynchronous read is dispatched a second time to write its result. The validators were set on the first
+        // dispatch, before the read, and must not be replaced by a newer ETag than the data was read at.
+        if (request.getDispatcherType() == DispatcherType.ASYNC)
+        {
+            return true;
+        }
+
+        // Set before anything else writes the response, so Spring Security keeps it instead of adding no-cache.
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        // Sets the ETag and Last-Modified headers, and the 304 status when the client's copy is current.
+        boolean notModified = new ServletWebRequest(request, response)
+                .checkNotModified(catalogVersion.getETag(), catalogVersion.getLastModified());
+        return !notModified;
+    }
+}
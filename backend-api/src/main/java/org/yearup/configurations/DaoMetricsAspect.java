@@ -0,0 +1,106 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ShoppingCart;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the DAOs in org.yearup.data.mysql, so the slowest query shows up by name.
+ * Publishes dao.calls, a timer tagged with the DAO, the method and whether it failed, and dao.rows, the number of rows
+ * a read returned. Percentiles and histogram buckets for both are set with management.metrics.distribution properties.
+ * Endpoints are timed by Spring Boot itself as http.server.requests.
+ */
+@Aspect
+@Component
+public class DaoMetricsAspect
+{
+    private final MeterRegistry registry;
+
+    @Autowired
+    public DaoMetricsAspect(MeterRegistry registry)
+    {
+        this.registry = registry;
+    }
+
+    @Around("within(org.yearup.data.mysql..*) && execution(public * *(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        String dao = signature.getDeclaringType().getSimpleName();
+        String method = signature.getName();
+
+        long start = System.nanoTime();
+        String exception = "none";
+        try
+        {
+            Object result = joinPoint.proceed();
+
+            int rows = rows(signature.getReturnType(), result);
+            if (rows >= 0)
+            {
+                DistributionSummary.builder("dao.rows")
+                        .description("Rows returned by a DAO read")
+                        .tags("dao", dao, "method", method)
+                        .register(registry)
+                        .record(rows);
+            }
+            return result;
+        }
+        catch (Throwable e)
+        {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        }
+        finally
+        {
+            Timer.builder("dao.calls")
+                    .description("Time spent in a DAO method, including waiting for a connection")
+                    .tags("dao", dao, "method", method,
+                            "outcome", exception.equals("none") ? "success" : "error",
+                            "exception", exception)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return the number of rows in a DAO result, or -1 when the method does not return rows.
+     */
+    static int rows(Class<?> returnType, Object result)
+    {
+        if (returnType == void.class || returnType == boolean.class || returnType == int.class)
+        {
+            return -1;
+        }
+        if (result == null)
+        {
+            // a lookup that found nothing
+            return 0;
+        }
+        if (result instanceof Collection)
+        {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof ProductPage)
+        {
+            return ((ProductPage) result).getProducts().size();
+        }
+        if (result instanceof ShoppingCart)
+        {
+            return ((ShoppingCart) result).getItems().size();
+        }
+        // a single mapped row, such as a Product or a User
+        return 1;
+    }
+}
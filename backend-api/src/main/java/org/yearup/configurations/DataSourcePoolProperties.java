@@ -0,0 +1,171 @@
+package org.yearup.configurations;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Connection pool settings read from the datasource.pool.* entries in application.properties.
+ * The defaults below are used for any entry that is left out.
+ */
+@Component
+@ConfigurationProperties(prefix = "datasource.pool")
+public class DataSourcePoolProperties
+{
+    private int initialSize = 5;
+    private int minIdle = 5;
+    private int maxIdle = 20;
+    private int maxTotal = 20;
+    private long maxWaitMillis = 3000;
+    // When empty, connections are validated with the driver's own isValid() check instead of a query.
+    private String validationQuery = "";
+    private int validationTimeoutSeconds = 2;
+    private boolean testOnBorrow = true;
+    private boolean testWhileIdle = true;
+    private long timeBetweenEvictionRunsMillis = 30000;
+    // Connections held longer than this are treated as leaked, logged and reclaimed. 0 turns leak detection off.
+    private int leakDetectionTimeoutSeconds = 60;
+    private boolean poolPreparedStatements = true;
+    private int maxOpenPreparedStatements = 100;
+    // Connections for streamed reads, which are held for a whole export and are never treated as leaked.
+    private int streamingMaxTotal = 4;
+
+    public int getInitialSize()
+    {
+        return initialSize;
+    }
+
+    public void setInitialSize(int initialSize)
+    {
+        this.initialSize = initialSize;
+    }
+
+    public int getMinIdle()
+    {
+        return minIdle;
+    }
+
+    public void setMinIdle(int minIdle)
+    {
+        this.minIdle = minIdle;
+    }
+
+    public int getMaxIdle()
+    {
+        return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle)
+    {
+        this.maxIdle = maxIdle;
+    }
+
+    public int getMaxTotal()
+    {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal)
+    {
+        this.maxTotal = maxTotal;
+    }
+
+    public long getMaxWaitMillis()
+    {
+        return maxWaitMillis;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis)
+    {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public String getValidationQuery()
+    {
+        return validationQuery;
+    }
+
+    public void setValidationQuery(String validationQuery)
+    {
+        this.validationQuery = validationQuery;
+    }
+
+    public int getValidationTimeoutSeconds()
+    {
+        return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds)
+    {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public boolean isTestOnBorrow()
+    {
+        return testOnBorrow;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow)
+    {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public boolean isTestWhileIdle()
+    {
+        return testWhileIdle;
+    }
+
+    public void setTestWhileIdle(boolean testWhileIdle)
+    {
+        this.testWhileIdle = testWhileIdle;
+    }
+
+    public long getTimeBetweenEvictionRunsMillis()
+    {
+        return timeBetweenEvictionRunsMillis;
+    }
+
+    public void setTimeBetweenEvictionRunsMillis(long timeBetweenEvictionRunsMillis)
+    {
+        this.timeBetweenEvictionRunsMillis = timeBetweenEvictionRunsMillis;
+    }
+
+    public int getLeakDetectionTimeoutSeconds()
+    {
+        return leakDetectionTimeoutSeconds;
+    }
+
+    public void setLeakDetectionTimeoutSeconds(int leakDetectionTimeoutSeconds)
+    {
+        this.leakDetectionTimeoutSeconds = leakDetectionTimeoutSeconds;
+    }
+
+    public boolean isPoolPreparedStatements()
+    {
+        return poolPreparedStatements;
+    }
+
+    public void setPoolPreparedStatements(boolean poolPreparedStatements)
+    {
+        this.poolPreparedStatements = poolPreparedStatements;
+    }
+
+    public int getMaxOpenPreparedStatements()
+    {
+        return maxOpenPreparedStatements;
+    }
+
+    public void setMaxOpenPreparedStatements(int maxOpenPreparedStatements)
+    {
+        this.maxOpenPreparedStatements = maxOpenPreparedStatements;
+    }
+
+    public int getStreamingMaxTotal()
+    {
+        return streamingMaxTotal;
+    }
+
+    public void setStreamingMaxTotal(int streamingMaxTotal)
+    {
+        this.streamingMaxTotal = streamingMaxTotal;
+    }
+}
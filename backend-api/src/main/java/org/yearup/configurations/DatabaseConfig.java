@@ -1,37 +1,128 @@
 package org.yearup.configurations;
 
-import org.apache.commons.dbcp2.BasicDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class DatabaseConfig
 {
     private final String url;
     private final String username;
     private final String password;
-    private BasicDataSource basicDataSource;
+    private ReplicaRoutingDataSource routingDataSource;
 
+    /**
+     * The DAOs' DataSource. Reads marked @ReadOnly go to the replica pools when datasource.replica.urls lists any,
+     * reads marked @Streaming go to the streaming pool, and everything else goes to the primary pool.
+     */
     @Bean
-    public BasicDataSource dataSource()
+    public ReplicaRoutingDataSource dataSource()
     {
-        return basicDataSource;
+        return routingDataSource;
     }
 
+    /**
+     * @param replicaUrls is a comma-separated list of replica JDBC urls. Each gets its own pool, sized like the primary's.
+     * @param replicaUsername should be a user that can only read, so a misrouted write fails instead of diverging a replica.
+     * @param primaryWindowMillis is how long reads stay on the primary after a catalog write.
+     */
     @Autowired
     public DatabaseConfig(@Value("${datasource.url}") String url,
                           @Value("${datasource.username}") String username,
-                          @Value("${datasource.password}") String password)
+                          @Value("${datasource.password}") String password,
+                          @Value("${datasource.replica.urls:}") List<String> replicaUrls,
+                          @Value("${datasource.replica.username:${datasource.username}}") String replicaUsername,
+                          @Value("${datasource.replica.password:${datasource.password}}") String replicaPassword,
+                          @Value("${datasource.replica.primary-window-millis:2000}") long primaryWindowMillis,
+                          DataSourcePoolProperties pool,
+                          StatementTracer statementTracer)
     {
         this.url = url;
         this.username = username;
         this.password = password;
-        basicDataSource = new BasicDataSource();
+
+        InstrumentedDataSource primary = pool("primary", url, username, password, pool, statementTracer);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String replicaUrl : replicaUrls)
+        {
+            if (!replicaUrl.isBlank())
+            {
+                replicas.add(pool("replica-" + (replicas.size() + 1), replicaUrl.trim(), replicaUsername, replicaPassword,
+                        pool, statementTracer));
+            }
+        }
+
+        InstrumentedDataSource streaming = streamingPool(url, username, password, pool, statementTracer);
+
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, streaming, primaryWindowMillis);
+    }
+
+    /**
+     * A small pool on the primary for reads that hold their connection for a whole stream.
+     * Its connections are never reclaimed as leaked, since DBCP2 only counts a connection as used when a statement runs,
+     * not while rows are read, so a long stream would otherwise be closed by the leak detection partway through.
+     */
+    static InstrumentedDataSource streamingPool(String url, String username, String password,
+                                                DataSourcePoolProperties pool, StatementTracer statementTracer)
+    {
+        InstrumentedDataSource streaming = pool("streaming", url, username, password, pool, statementTracer);
+        streaming.setInitialSize(0);
+        streaming.setMinIdle(0);
+        streaming.setMaxIdle(pool.getStreamingMaxTotal());
+        streaming.setMaxTotal(pool.getStreamingMaxTotal());
+        streaming.setRemoveAbandonedOnBorrow(false);
+        streaming.setRemoveAbandonedOnMaintenance(false);
+        return streaming;
+    }
+
+    private static InstrumentedDataSource pool(String name, String url, String username, String password,
+                                               DataSourcePoolProperties pool, StatementTracer statementTracer)
+    {
+        InstrumentedDataSource basicDataSource = new InstrumentedDataSource(name);
         basicDataSource.setUrl(url);
         basicDataSource.setUsername(username);
         basicDataSource.setPassword(password);
+        // Lets Connector/J send a JDBC batch as multi-row statements instead of one round trip per row.
+        basicDataSource.addConnectionProperty("rewriteBatchedStatements", "true");
+
+        // Sizing, so bursts reuse warm connections instead of opening new ones.
+        basicDataSource.setInitialSize(pool.getInitialSize());
+        basicDataSource.setMinIdle(pool.getMinIdle());
+        basicDataSource.setMaxIdle(pool.getMaxIdle());
+        basicDataSource.setMaxTotal(pool.getMaxTotal());
+        basicDataSource.setMaxWaitMillis(pool.getMaxWaitMillis());
+
+        // Validation, so a connection dropped by MySQL is never handed to a DAO.
+        if (!pool.getValidationQuery().isBlank()) {
+            basicDataSource.setValidationQuery(pool.getValidationQuery());
+        }
+        basicDataSource.setValidationQueryTimeout(pool.getValidationTimeoutSeconds());
+        basicDataSource.setTestOnBorrow(pool.isTestOnBorrow());
+        basicDataSource.setTestWhileIdle(pool.isTestWhileIdle());
+        basicDataSource.setTimeBetweenEvictionRunsMillis(pool.getTimeBetweenEvictionRunsMillis());
+
+        // Leak detection, so a connection that is never closed is logged and returned to the pool.
+        if (pool.getLeakDetectionTimeoutSeconds() > 0) {
+            basicDataSource.setRemoveAbandonedOnBorrow(true);
+            basicDataSource.setRemoveAbandonedOnMaintenance(true);
+            basicDataSource.setRemoveAbandonedTimeout(pool.getLeakDetectionTimeoutSeconds());
+            basicDataSource.setLogAbandoned(true);
+        }
+
+        // Statement caching, so each pooled connection reuses its prepared statements.
+        basicDataSource.setPoolPreparedStatements(pool.isPoolPreparedStatements());
+        basicDataSource.setMaxOpenPreparedStatements(pool.getMaxOpenPreparedStatements());
+
+        // Tracing, so slow statements and requests that run too many of them are logged.
+        basicDataSource.setStatementTracer(statementTracer);
+        return basicDataSource;
     }
 
-}
\ No newline at end of file
+}
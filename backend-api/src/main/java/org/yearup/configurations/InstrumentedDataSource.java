@@ -0,0 +1,98 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DBCP2 pool that reports how busy it is.
+ * Publishes active, idle and waiting connection gauges, and a histogram of how long
+ * callers such as MySqlDaoBase.getConnection() waited to be handed a connection.
+ * When given a StatementTracer, the connections it hands out are traced.
+ * Every meter is tagged with the pool's name, such as primary or replica-1.
+ */
+public class InstrumentedDataSource extends BasicDataSource implements MeterBinder
+{
+    private final String pool;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private Timer acquireTimer;
+    private StatementTracer statementTracer;
+
+    public InstrumentedDataSource(String pool)
+    {
+        this.pool = pool;
+    }
+
+    public void setStatementTracer(StatementTracer statementTracer)
+    {
+        this.statementTracer = statementTracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try
+        {
+            Connection connection = super.getConnection();
+            return statementTracer == null ? connection : statementTracer.wrap(connection);
+        }
+        finally
+        {
+            waiting.decrementAndGet();
+            if (acquireTimer != null)
+            {
+                acquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    public String getPool()
+    {
+        return pool;
+    }
+
+    /**
+     * @return the number of callers currently blocked waiting for a connection.
+     */
+    public int getNumWaiting()
+    {
+        return waiting.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        Gauge.builder("db.pool.connections.active", this, BasicDataSource::getNumActive)
+                .description("Connections currently handed out by the pool")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("db.pool.connections.idle", this, BasicDataSource::getNumIdle)
+                .description("Open connections waiting in the pool")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("db.pool.connections.waiting", this, InstrumentedDataSource::getNumWaiting)
+                .description("Callers blocked waiting for a connection")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("db.pool.connections.max", this, BasicDataSource::getMaxTotal)
+                .description("Largest number of connections the pool will open")
+                .tag("pool", pool)
+                .register(registry);
+
+        acquireTimer = Timer.builder("db.pool.connections.acquire")
+                .description("Time spent waiting to be handed a connection")
+                .tag("pool", pool)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,90 @@
+package org.yearup.configurations;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells ReplicaRoutingDataSource which DAO calls may read from a replica, and when the catalog was last written.
+ * A DAO method marked @ReadOnly runs with the current thread marked read-only, so its connection can come from a replica.
+ * Every other public method of MySqlProductDao and MySqlCategoryDao is a catalog write, and starts the primary window.
+ * A stock change reported to a StockChangeListener starts the primary window too.
+ * A DAO method marked @Streaming runs with the current thread marked streaming, so its connection comes from the streaming pool.
+ */
+@Aspect
+@Component
+public class ReadOnlyRoutingAspect
+{
+    private final ReplicaRoutingDataSource dataSource;
+
+    @Autowired
+    public ReadOnlyRoutingAspect(ReplicaRoutingDataSource dataSource)
+    {
+        this.dataSource = dataSource;
+    }
+
+    @Around("within(org.yearup.data.mysql..*) && @annotation(org.yearup.data.ReadOnly)")
+    public Object readOnly(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        boolean previous = ReplicaRoutingDataSource.enterReadOnly();
+        try
+        {
+            return joinPoint.proceed();
+        }
+        finally
+        {
+            ReplicaRoutingDataSource.exitReadOnly(previous);
+        }
+    }
+
+    @Around("within(org.yearup.data.mysql..*) && @annotation(org.yearup.data.Streaming)")
+    public Object streaming(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        boolean previous = ReplicaRoutingDataSource.enterStreaming();
+        try
+        {
+            return joinPoint.proceed();
+        }
+        finally
+        {
+            ReplicaRoutingDataSource.exitStreaming(previous);
+        }
+    }
+
+    /**
+     * Stock written straight to products.stock moves CatalogVersion just like a catalog write,
+     * so the products read again after it, and snapshots rebuilt for the new version, must not come from a replica.
+     */
+    @Around("execution(* org.yearup.data.StockChangeListener.stockChanged(..))")
+    public Object stockWrite(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        dataSource.catalogWritten();
+        try
+        {
+            return joinPoint.proceed();
+        }
+        finally
+        {
+            dataSource.catalogWritten();
+        }
+    }
+
+    @Around("(within(org.yearup.data.mysql.MySqlProductDao) || within(org.yearup.data.mysql.MySqlCategoryDao))"
+            + " && execution(public * *(..)) && !@annotation(org.yearup.data.ReadOnly)")
+    public Object catalogWrite(ProceedingJoinPoint joinPoint) throws Throwable
+    {
+        // opened before as well as after, since the write moves CatalogVersion before it returns,
+        // and a snapshot rebuilt in between must not be read from a replica
+        dataSource.catalogWritten();
+        try
+        {
+            return joinPoint.proceed();
+        }
+        finally
+        {
+            dataSource.catalogWritten();
+        }
+    }
+}
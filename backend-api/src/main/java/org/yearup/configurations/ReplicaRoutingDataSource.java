@@ -0,0 +1,251 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections from the primary pool, or from a replica pool for reads marked @ReadOnly.
+ * Replicas are taken in turn. A replica that cannot give a connection is skipped for the primary, so a replica
+ * outage slows catalog reads down rather than failing them.
+ * After a catalog write, every read goes to the primary for the primary window, so caches and snapshots refilled
+ * right after the write never take rows from a replica that has not caught up yet. The window should be longer
+ * than the replicas normally lag.
+ * With no replicas, every connection comes from the primary.
+ * Methods marked @Streaming take their connection from the streaming pool instead, whatever else applies,
+ * since that pool is the one that never reclaims a connection held for a long stream.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder, AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<Boolean> READ_ONLY = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<Boolean> STREAMING = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final DataSource streaming;
+    private final long primaryWindowNanos;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private volatile long primaryUntil = System.nanoTime();
+    private Counter primaryConnections;
+    private Counter replicaConnections;
+    private Counter streamingConnections;
+    private Counter replicaFallbacks;
+
+    /**
+     * @param primary takes every write, and every read that is not marked @ReadOnly.
+     * @param replicas serve @ReadOnly reads. May be empty.
+     * @param primaryWindowMillis is how long after a catalog write reads stay on the primary.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long primaryWindowMillis)
+    {
+        this(primary, replicas, null, primaryWindowMillis);
+    }
+
+    /**
+     * @param streaming serves @Streaming reads. When null, they use the primary.
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, DataSource streaming,
+                                    long primaryWindowMillis)
+    {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.streaming = streaming;
+        this.primaryWindowNanos = TimeUnit.MILLISECONDS.toNanos(primaryWindowMillis);
+    }
+
+    /**
+     * Marks the current thread as running a read-only DAO method, until exitReadOnly is called.
+     * @return whether it already was, to be handed back to exitReadOnly.
+     */
+    public static boolean enterReadOnly()
+    {
+        boolean previous = READ_ONLY.get();
+        READ_ONLY.set(true);
+        return previous;
+    }
+
+    public static void exitReadOnly(boolean previous)
+    {
+        if (previous)
+        {
+            READ_ONLY.set(true);
+        }
+        else
+        {
+            READ_ONLY.remove();
+        }
+    }
+
+    /**
+     * Marks the current thread as running a streaming DAO method, until exitStreaming is called.
+     * @return whether it already was, to be handed back to exitStreaming.
+     */
+    public static boolean enterStreaming()
+    {
+        boolean previous = STREAMING.get();
+        STREAMING.set(true);
+        return previous;
+    }
+
+    public static void exitStreaming(boolean previous)
+    {
+        if (previous)
+        {
+            STREAMING.set(true);
+        }
+        else
+        {
+            STREAMING.remove();
+        }
+    }
+
+    /**
+     * Sends reads to the primary for the primary window, starting now.
+     */
+    public void catalogWritten()
+    {
+        primaryUntil = System.nanoTime() + primaryWindowNanos;
+    }
+
+    public DataSource getPrimary()
+    {
+        return primary;
+    }
+
+    public List<DataSource> getReplicas()
+    {
+        return replicas;
+    }
+
+    public DataSource getStreaming()
+    {
+        return streaming;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        if (streaming != null && STREAMING.get())
+        {
+            count(streamingConnections);
+            return streaming.getConnection();
+        }
+
+        DataSource replica = replicaForRead();
+        if (replica == null)
+        {
+            count(primaryConnections);
+            return primary.getConnection();
+        }
+
+        try
+        {
+            Connection connection = replica.getConnection();
+            count(replicaConnections);
+            return connection;
+        }
+        catch (SQLException e)
+        {
+            LOG.warn("A replica could not give a connection, reading from the primary instead: {}", e.getMessage());
+            count(replicaFallbacks);
+            count(primaryConnections);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException
+    {
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * @return the replica the current thread should read from, or null when it should use the primary.
+     */
+    DataSource replicaForRead()
+    {
+        if (replicas.isEmpty() || !READ_ONLY.get() || System.nanoTime() - primaryUntil < 0)
+        {
+            return null;
+        }
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    private static void count(Counter counter)
+    {
+        if (counter != null)
+        {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Binds the pools' own meters, tagged by pool, along with how many connections went to each side.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        if (primary instanceof MeterBinder)
+        {
+            ((MeterBinder) primary).bindTo(registry);
+        }
+        for (DataSource replica : replicas)
+        {
+            if (replica instanceof MeterBinder)
+            {
+                ((MeterBinder) replica).bindTo(registry);
+            }
+        }
+        if (streaming instanceof MeterBinder)
+        {
+            ((MeterBinder) streaming).bindTo(registry);
+        }
+
+        primaryConnections = Counter.builder("db.routing.connections")
+                .description("Connections handed out, by the pool they came from")
+                .tag("target", "primary")
+                .register(registry);
+        replicaConnections = Counter.builder("db.routing.connections")
+                .description("Connections handed out, by the pool they came from")
+                .tag("target", "replica")
+                .register(registry);
+        streamingConnections = Counter.builder("db.routing.connections")
+                .description("Connections handed out, by the pool they came from")
+                .tag("target", "streaming")
+                .register(registry);
+        replicaFallbacks = Counter.builder("db.routing.replica.fallbacks")
+                .description("Reads sent to the primary because a replica could not give a connection")
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws Exception
+    {
+        if (streaming instanceof AutoCloseable)
+        {
+            ((AutoCloseable) streaming).close();
+        }
+        for (DataSource replica : replicas)
+        {
+            if (replica instanceof AutoCloseable)
+            {
+                ((AutoCloseable) replica).close();
+            }
+        }
+        if (primary instanceof AutoCloseable)
+        {
+            ((AutoCloseable) primary).close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.yearup.configurations;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The statements one request ran, counted by StatementTracer.
+ * A request that reads asynchronously can run statements on several threads at once, so the counts are thread safe.
+ */
+public class RequestTrace
+{
+    private final String name;
+    private final AtomicInteger roundTrips = new AtomicInteger();
+    private final AtomicLong statementNanos = new AtomicLong();
+    private final Map<String, AtomicInteger> bySql = new ConcurrentHashMap<>();
+
+    public RequestTrace(String name)
+    {
+        this.name = name;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return how many statements were executed, each of which is one round trip to the database.
+     */
+    public int getRoundTrips()
+    {
+        return roundTrips.get();
+    }
+
+    /**
+     * @return the time spent executing statements and reading their results.
+     */
+    public long getStatementMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(statementNanos.get());
+    }
+
+    /**
+     * @return the SQL executed the most times, with how many times, which points at the loop behind an N+1.
+     */
+    public Map.Entry<String, Integer> getMostRepeated()
+    {
+        String sql = null;
+        int count = 0;
+        for (Map.Entry<String, AtomicInteger> entry : bySql.entrySet())
+        {
+            if (entry.getValue().get() > count)
+            {
+                sql = entry.getKey();
+                count = entry.getValue().get();
+            }
+        }
+        return new AbstractMap.SimpleImmutableEntry<>(sql, count);
+    }
+
+    void add(String sql, long nanos)
+    {
+        roundTrips.incrementAndGet();
+        statementNanos.addAndGet(nanos);
+        bySql.computeIfAbsent(String.valueOf(sql), key -> new AtomicInteger()).incrementAndGet();
+    }
+}
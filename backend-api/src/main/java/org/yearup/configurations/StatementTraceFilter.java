@@ -0,0 +1,103 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Gives every request a RequestTrace, so StatementTracer can count the statements it runs.
+ * Runs ahead of Spring Security, so the user lookups of a login are counted too.
+ * When the request ends, the count is published as jdbc.request.statements, tagged with the endpoint,
+ * and a request that ran more than jdbc.trace.round-trip-budget statements is logged as a likely N+1.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StatementTraceFilter extends OncePerRequestFilter
+{
+    private final StatementTracer statementTracer;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public StatementTraceFilter(StatementTracer statementTracer, MeterRegistry registry)
+    {
+        this.statementTracer = statementTracer;
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request)
+    {
+        return !statementTracer.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        RequestTrace trace = statementTracer.begin(request.getMethod() + " " + request.getRequestURI());
+        try
+        {
+            chain.doFilter(request, response);
+        }
+        finally
+        {
+            statementTracer.detach();
+        }
+
+        if (!request.isAsyncStarted())
+        {
+            finish(request, trace);
+            return;
+        }
+
+        // an asynchronous read is still running, and its statements count towards this request until it completes
+        request.getAsyncContext().addListener(new AsyncListener()
+        {
+            @Override
+            public void onComplete(AsyncEvent event)
+            {
+                finish(request, trace);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event)
+            {
+            }
+
+            @Override
+            public void onError(AsyncEvent event)
+            {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event)
+            {
+            }
+        });
+    }
+
+    private void finish(HttpServletRequest request, RequestTrace trace)
+    {
+        statementTracer.finish(trace);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        DistributionSummary.builder("jdbc.request.statements")
+                .description("Statements executed to serve one request")
+                .tags("method", request.getMethod(), "uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .register(registry)
+                .record(trace.getRoundTrips());
+    }
+}
@@ -0,0 +1,341 @@
+package org.yearup.configurations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Traces the statements run on connections from the pool.
+ * Every execution is timed, and so is reading its result set. An execution that takes longer than
+ * jdbc.trace.slow-statement-millis in total is logged with its SQL and the types of its bind parameters, never their values.
+ * Executions are also added to the RequestTrace of the request they ran for, which StatementTraceFilter
+ * checks against jdbc.trace.round-trip-budget when the request ends, to catch a loop that runs one query per row.
+ */
+@Component
+public class StatementTracer
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StatementTracer.class);
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final long slowNanos;
+    private final int roundTripBudget;
+
+    /**
+     * @param enabled is whether connections are traced at all. When off, they are handed out untouched.
+     * @param slowStatementMillis is how long an execution, including reading its results, may take before it is logged.
+     * @param roundTripBudget is how many executions one request may run before it is logged as a likely N+1.
+     */
+    @Autowired
+    public StatementTracer(@Value("${jdbc.trace.enabled:true}") boolean enabled,
+                           @Value("${jdbc.trace.slow-statement-millis:200}") long slowStatementMillis,
+                           @Value("${jdbc.trace.round-trip-budget:20}") int roundTripBudget)
+    {
+        this.enabled = enabled;
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowStatementMillis);
+        this.roundTripBudget = roundTripBudget;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the connection, traced when tracing is on.
+     */
+    public Connection wrap(Connection connection)
+    {
+        if (!enabled)
+        {
+            return connection;
+        }
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Starts collecting the executions of the current thread under the given name, such as "GET /cart".
+     */
+    public RequestTrace begin(String name)
+    {
+        RequestTrace trace = new RequestTrace(name);
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    /**
+     * Stops collecting on the current thread. The trace can still be finished later, for a request that continues asynchronously.
+     */
+    public void detach()
+    {
+        CURRENT.remove();
+    }
+
+    /**
+     * Logs the trace as a likely N+1 when it ran more executions than the budget allows.
+     * @return true when it was over the budget.
+     */
+    public boolean finish(RequestTrace trace)
+    {
+        int roundTrips = trace.getRoundTrips();
+        if (roundTrips <= roundTripBudget)
+        {
+            LOG.debug("{} ran {} statements in {} ms", trace.getName(), roundTrips, trace.getStatementMillis());
+            return false;
+        }
+
+        Map.Entry<String, Integer> repeated = trace.getMostRepeated();
+        LOG.warn("{} ran {} statements, over the budget of {}; the most repeated ran {} times: {}",
+                trace.getName(), roundTrips, roundTripBudget, repeated.getValue(), repeated.getKey());
+        return true;
+    }
+
+    /**
+     * @return the read, made to add its executions to the trace of the thread that submitted it.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> read)
+    {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null)
+        {
+            return read;
+        }
+        return () -> {
+            RequestTrace previous = CURRENT.get();
+            CURRENT.set(trace);
+            try
+            {
+                return read.get();
+            }
+            finally
+            {
+                if (previous == null)
+                {
+                    CURRENT.remove();
+                }
+                else
+                {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    private void finished(Execution execution)
+    {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null)
+        {
+            trace.add(execution.sql, execution.executeNanos + execution.fetchNanos);
+        }
+
+        if (execution.executeNanos + execution.fetchNanos >= slowNanos)
+        {
+            LOG.warn("Slow statement: {} ms executing, {} ms fetching {} rows, binds ({}){}: {}",
+                    TimeUnit.NANOSECONDS.toMillis(execution.executeNanos),
+                    TimeUnit.NANOSECONDS.toMillis(execution.fetchNanos),
+                    execution.rows,
+                    String.join(", ", execution.binds),
+                    execution.batchSize > 0 ? " x " + execution.batchSize + " in a batch" : "",
+                    execution.sql);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler)
+    {
+        return (T) Proxy.newProxyInstance(StatementTracer.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * One execution of a statement, from execute to the last row read.
+     */
+    private static class Execution
+    {
+        private final String sql;
+        private final List<String> binds;
+        private final int batchSize;
+        private long executeNanos;
+        private long fetchNanos;
+        private int rows;
+
+        Execution(String sql, List<String> binds, int batchSize)
+        {
+            this.sql = sql;
+            this.binds = binds;
+            this.batchSize = batchSize;
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler
+    {
+        private final Connection connection;
+        private final List<StatementHandler> statements = new ArrayList<>();
+
+        ConnectionHandler(Connection connection)
+        {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+            if (name.equals("close"))
+            {
+                // DAOs often leave their statements to be closed with the connection
+                statements.forEach(StatementHandler::finish);
+                statements.clear();
+            }
+
+            Object result = StatementTracer.invoke(connection, method, args);
+
+            if (name.equals("prepareStatement") && result instanceof PreparedStatement)
+            {
+                StatementHandler handler = new StatementHandler((Statement) result, (String) args[0]);
+                statements.add(handler);
+                return proxy(PreparedStatement.class, handler);
+            }
+            if (name.equals("createStatement") && result instanceof Statement)
+            {
+                StatementHandler handler = new StatementHandler((Statement) result, null);
+                statements.add(handler);
+                return proxy(Statement.class, handler);
+            }
+            return result;
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler
+    {
+        private final Statement statement;
+        private final String sql;
+        private final TreeMap<Integer, String> binds = new TreeMap<>();
+        private int batchSize;
+        private Execution current;
+
+        StatementHandler(Statement statement, String sql)
+        {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+            {
+                binds.put((Integer) args[0], name.substring(3));
+            }
+            else if (name.equals("addBatch"))
+            {
+                batchSize++;
+            }
+            else if (name.startsWith("execute"))
+            {
+                finish();
+                String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                current = new Execution(executed, new ArrayList<>(binds.values()), batchSize);
+                batchSize = 0;
+
+                long start = System.nanoTime();
+                try
+                {
+                    Object result = StatementTracer.invoke(statement, method, args);
+                    if (result instanceof ResultSet)
+                    {
+                        return proxy(ResultSet.class, new ResultSetHandler((ResultSet) result, current));
+                    }
+                    return result;
+                }
+                finally
+                {
+                    current.executeNanos = System.nanoTime() - start;
+                }
+            }
+            else if (name.equals("close"))
+            {
+                finish();
+            }
+
+            return StatementTracer.invoke(statement, method, args);
+        }
+
+        void finish()
+        {
+            if (current != null)
+            {
+                Execution execution = current;
+                current = null;
+                finished(execution);
+            }
+        }
+    }
+
+    private static class ResultSetHandler implements InvocationHandler
+    {
+        private final ResultSet resultSet;
+        private final Execution execution;
+
+        ResultSetHandler(ResultSet resultSet, Execution execution)
+        {
+            this.resultSet = resultSet;
+            this.execution = execution;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            if (!method.getName().equals("next"))
+            {
+                return StatementTracer.invoke(resultSet, method, args);
+            }
+
+            long start = System.nanoTime();
+            try
+            {
+                Object hasRow = StatementTracer.invoke(resultSet, method, args);
+                if (Boolean.TRUE.equals(hasRow))
+                {
+                    execution.rows++;
+                }
+                return hasRow;
+            }
+            finally
+            {
+                execution.fetchNanos += System.nanoTime() - start;
+            }
+        }
+    }
+}
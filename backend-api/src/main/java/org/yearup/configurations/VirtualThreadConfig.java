@@ -0,0 +1,42 @@
+package org.yearup.configurations;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs every request, and every async response such as the streamed product export, on its own virtual thread.
+ * A request blocked on JDBC then parks instead of holding a Tomcat worker, so server.tomcat.threads.max stops
+ * being the limit and the connection pool's datasource.pool.max-total becomes it; requests beyond that wait
+ * up to datasource.pool.max-wait-millis for a connection.
+ * Turned on with spring.threads.virtual.enabled, the same switch Spring Boot 3.2 and later use.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer
+{
+    @Bean(destroyMethod = "close")
+    public ExecutorService requestExecutor()
+    {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("request-", 0).factory());
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler(ExecutorService requestExecutor)
+    {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer)
+    {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(requestExecutor()));
+    }
+}
@@ -0,0 +1,25 @@
+package org.yearup.configurations;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer
+{
+    private final CatalogCacheInterceptor catalogCacheInterceptor;
+
+    @Autowired
+    public WebConfig(CatalogCacheInterceptor catalogCacheInterceptor)
+    {
+        this.catalogCacheInterceptor = catalogCacheInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        registry.addInterceptor(catalogCacheInterceptor)
+                .addPathPatterns("/products", "/products/**", "/categories", "/categories/**");
+    }
+}
@@ -1,17 +1,19 @@
 package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.AsyncCategoryDao;
+import org.yearup.data.AsyncProductDao;
 import org.yearup.data.CategoryDao;
-import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CatalogSnapshots;
 import org.yearup.models.Category;
-import org.yearup.models.Product;
-
-import java.util.List;
+import org.yearup.models.ProductSort;
 
 /**
  * Handles operations regarding Category by listening to specific paths on the front-end
@@ -20,31 +22,49 @@ import java.util.List;
  */
 @RestController
 @RequestMapping("categories")
-@CrossOrigin
+@CrossOrigin(exposedHeaders = ProductsController.NEXT_CURSOR_HEADER)
 public class CategoriesController
 {
     private CategoryDao categoryDao;
-    private ProductDao productDao;
+    private AsyncCategoryDao asyncCategoryDao;
+    private AsyncProductDao asyncProductDao;
+    private CatalogSnapshots snapshots;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     /**
      * @param categoryDao is injected as a Bean from MySqlCategoryDao
-     * @param productDao is injected as a Bean from MySqlProductDao
+     * @param asyncCategoryDao is injected as a Bean from ExecutorCategoryDao
+     * @param asyncProductDao is injected as a Bean from ExecutorProductDao
+     * @param snapshots is injected as a Bean, and holds the serialized category list and first product pages.
+     * @param defaultPageSize is the number of products listed when no limit is requested.
+     * @param maxPageSize is the largest limit a request may ask for.
      */
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao) {
+    public CategoriesController(CategoryDao categoryDao, AsyncCategoryDao asyncCategoryDao, AsyncProductDao asyncProductDao,
+                                CatalogSnapshots snapshots,
+                                @Value("${catalog.page.default-size:100}") int defaultPageSize,
+                                @Value("${catalog.page.max-size:500}") int maxPageSize) {
         this.categoryDao = categoryDao;
-        this.productDao = productDao;
+        this.asyncCategoryDao = asyncCategoryDao;
+        this.asyncProductDao = asyncProductDao;
+        this.snapshots = snapshots;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     /**
      * Runs when requesting a get at the mapped path
-     * @return a list of all Category objects from the database.
+     * @param acceptEncoding is the Accept-Encoding request header, if any.
+     * @return a list of all Category objects from the database, sent from a pre-serialized snapshot.
      */
     @GetMapping("")
     @PreAuthorize("permitAll()")
-    public List<Category> getAll()
+    public Object getAll(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
     {
-        return this.categoryDao.getAllCategories();
+        return ProductsController.reply(this.snapshots.get("categories", this.asyncCategoryDao::getAllCategories)
+                .thenApply(snapshot -> ProductsController.snapshotResponse(snapshot, acceptEncoding))
+                .exceptionally(ProductsController::readFailed));
     }
 
     /**
@@ -66,18 +86,47 @@ public class CategoriesController
 
     /**
      * @param categoryId is obtained from the URL path
-     * @return a list of Product objects from the database that have a matching id if any are found,
-     * otherwise returns Response Status 404.
+     * @param sort is one of id, name or price, and defaults to id.
+     * @param after is the X-Next-Cursor header of the previous page, if any.
+     * @param limit is the page size, capped at catalog.page.max-size.
+     * @param acceptEncoding is the Accept-Encoding request header, if any.
+     * @return one page of Product objects from the database that have a matching id if any are found,
+     * otherwise returns Response Status 404. The X-Next-Cursor header is set when more pages follow.
+     * The first page in the default order, which is what the storefront asks for, is sent from a pre-serialized snapshot.
      */
     @RequestMapping(path = "{categoryId}/products", method = RequestMethod.GET)
     @PreAuthorize("permitAll()")
     @ResponseStatus(value = HttpStatus.OK)
-    public List<Product> getProductsById(@PathVariable int categoryId)
+    public Object getProductsById(@PathVariable int categoryId,
+                                  @RequestParam(name = "sort", required = false) String sort,
+                                  @RequestParam(name = "after", required = false) String after,
+                                  @RequestParam(name = "limit", required = false) Integer limit,
+                                  @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
     {
-        if (this.categoryDao.getById(categoryId) == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        ProductSort productSort;
+        int pageSize;
+        try {
+            productSort = ProductSort.fromParameter(sort);
+            pageSize = ProductsController.pageSize(limit, defaultPageSize, maxPageSize);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
-        return this.productDao.listByCategoryId(categoryId);
+
+        return ProductsController.reply(this.asyncCategoryDao.getById(categoryId)
+                .thenCompose(category -> {
+                    if (category == null) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+                    }
+
+                    if (sort == null && after == null && limit == null) {
+                        return this.snapshots.get("category:" + categoryId,
+                                        () -> this.asyncProductDao.listByCategoryId(categoryId, ProductSort.ID, null, defaultPageSize))
+                                .<ResponseEntity<?>>thenApply(snapshot -> ProductsController.snapshotResponse(snapshot, acceptEncoding));
+                    }
+                    return this.asyncProductDao.listByCategoryId(categoryId, productSort, after, pageSize)
+                            .<ResponseEntity<?>>thenApply(ProductsController::pageResponse);
+                })
+                .exceptionally(ProductsController::readFailed));
     }
 
     /**
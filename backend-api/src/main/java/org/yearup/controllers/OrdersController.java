@@ -0,0 +1,59 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.OrderDao;
+import org.yearup.data.OutOfStockException;
+import org.yearup.models.Order;
+import org.yearup.security.UserIdResolver;
+
+import java.security.Principal;
+
+/**
+ * Handles checking out by listening to the orders path, turning the authenticated user's
+ * ShoppingCart into an Order. Requires the user to be logged in.
+ */
+@RestController
+@RequestMapping("orders")
+@PreAuthorize("hasRole('ROLE_USER')")
+@CrossOrigin
+public class OrdersController {
+    private OrderDao orderDao;
+    private UserIdResolver userIdResolver;
+
+    /**
+     * @param orderDao is injected as a Bean from MySqlOrderDao
+     * @param userIdResolver is injected as a Bean, and reads the user's id from their token
+     */
+    @Autowired
+    public OrdersController(OrderDao orderDao, UserIdResolver userIdResolver) {
+        this.orderDao = orderDao;
+        this.userIdResolver = userIdResolver;
+    }
+
+    /**
+     * Checks out the authenticated user's ShoppingCart, taking its products out of stock and emptying the cart.
+     * If successful, responds with Response Code 201 Created.
+     * @param principal is obtained from an authenticated user making the request.
+     * @return the new Order, Response Status 400 if the cart is empty, or Response Status 409 if a product is out of stock.
+     */
+    @PostMapping("")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public Order checkout(Principal principal) {
+
+        int userId = userIdResolver.resolve(principal);
+
+        try {
+            Order order = this.orderDao.checkout(userId);
+            if (order == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The cart is empty.");
+            }
+            return order;
+        } catch (OutOfStockException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+}
@@ -1,40 +1,134 @@
 package org.yearup.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.yearup.models.ImportResult;
 import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+import org.yearup.data.AsyncProductDao;
 import org.yearup.data.ProductDao;
+import org.yearup.data.bulk.ProductCsv;
+import org.yearup.data.bulk.ProductImporter;
+import org.yearup.data.cache.CatalogSnapshots;
+import org.yearup.data.facets.ProductFacetIndex;
+import org.yearup.data.search.ProductSearchIndex;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("products")
-@CrossOrigin
+@CrossOrigin(exposedHeaders = ProductsController.NEXT_CURSOR_HEADER)
 public class ProductsController
 {
+    /**
+     * Carries the cursor of the next page, so the body stays a plain list of products.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     private ProductDao productDao;
+    private AsyncProductDao asyncProductDao;
+    private ProductSearchIndex searchIndex;
+    private ProductFacetIndex facetIndex;
+    private CatalogSnapshots snapshots;
+    private ProductImporter productImporter;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public ProductsController(ProductDao productDao)
+    public ProductsController(ProductDao productDao,
+                              AsyncProductDao asyncProductDao,
+                              ProductSearchIndex searchIndex,
+                              ProductFacetIndex facetIndex,
+                              CatalogSnapshots snapshots,
+                              ProductImporter productImporter,
+                              ObjectMapper objectMapper,
+                              @Value("${catalog.page.default-size:100}") int defaultPageSize,
+                              @Value("${catalog.page.max-size:500}") int maxPageSize)
     {
         this.productDao = productDao;
+        this.asyncProductDao = asyncProductDao;
+        this.searchIndex = searchIndex;
+        this.facetIndex = facetIndex;
+        this.snapshots = snapshots;
+        this.productImporter = productImporter;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Lists one page of the products matching the filters.
+     * Pass the X-Next-Cursor response header back as "after" to get the following page; the header is absent on the last page.
+     * @param query is text to find in product names, subcategories and descriptions. Results are then ranked by relevance.
+     * @param sort is one of id, name or price, and defaults to id. Must be left out when searching by text.
+     * @param limit is the page size, capped at catalog.page.max-size.
+     */
     @GetMapping("")
     @PreAuthorize("permitAll()")
-    public List<Product> search(@RequestParam(name="cat", required = false) Integer categoryId,
+    public Object search(@RequestParam(name="q", required = false) String query,
+                                @RequestParam(name="cat", required = false) Integer categoryId,
                                 @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
                                 @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
-                                @RequestParam(name="subCategory", required = false) String subCategory
+                                @RequestParam(name="subCategory", required = false) String subCategory,
+                                @RequestParam(name="sort", required = false) String sort,
+                                @RequestParam(name="after", required = false) String after,
+                                @RequestParam(name="limit", required = false) Integer limit
                                 )
     {
+        if (query != null && !query.isBlank() && !searchIndex.isEnabled())
+        {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Text search is turned off.");
+        }
+
         try
         {
-            return productDao.search(categoryId, minPrice, maxPrice, subCategory);
+            if (query != null && !query.isBlank())
+            {
+                if (sort != null)
+                {
+                    throw new IllegalArgumentException("Text search results are ranked by relevance, so sort must be left out.");
+                }
+                // the index is in memory, so there is nothing to wait for
+                return pageResponse(searchIndex.search(query, categoryId, minPrice, maxPrice,
+                        subCategory, after, pageSize(limit, defaultPageSize, maxPageSize)));
+            }
+
+            return reply(asyncProductDao.search(categoryId, minPrice, maxPrice, subCategory,
+                            ProductSort.fromParameter(sort), after, pageSize(limit, defaultPageSize, maxPageSize))
+                    .thenApply(ProductsController::pageResponse)
+                    .exceptionally(ProductsController::readFailed));
+        }
+        catch(IllegalArgumentException ex)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
         }
         catch(Exception ex)
         {
@@ -42,18 +136,147 @@ public class ProductsController
         }
     }
 
-    @GetMapping("{id}")
+    /**
+     * Counts the products per category, subcategory and price bucket for the filters, for the storefront filter panel.
+     * Each facet is counted as if its own filter were left out, so the panel can show what every other choice would return.
+     * Served from memory, so it never runs a query.
+     */
+    @GetMapping("facets")
+    @PreAuthorize("permitAll()")
+    public ProductFacets facets(@RequestParam(name="cat", required = false) Integer categoryId,
+                                @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
+                                @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
+                                @RequestParam(name="subCategory", required = false) String subCategory)
+    {
+        return facetIndex.facets(categoryId, minPrice, maxPrice, subCategory);
+    }
+
+    /**
+     * Lists the featured products for the storefront front page.
+     * Sent from a pre-serialized snapshot, gzipped when the client accepts it.
+     */
+    @GetMapping("featured")
     @PreAuthorize("permitAll()")
-    public Product getById(@PathVariable int id )
+    public Object featured(@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
     {
-        try
+        return reply(snapshots.get("featured", asyncProductDao::listFeatured)
+                .thenApply(snapshot -> snapshotResponse(snapshot, acceptEncoding))
+                .exceptionally(ProductsController::readFailed));
+    }
+
+    /**
+     * Streams every product matching the filters, for export and feed consumers that need the whole catalog.
+     * Rows are written to the response as they are read from the database, so memory use does not grow with the catalog.
+     * @param format is "json" for a single JSON array, "ndjson" for one JSON object per line,
+     * or "csv" for the columns POST /products/import reads.
+     * Admins only: each export holds one of the few streaming connections for as long as its client takes to read it.
+     */
+    @GetMapping("export")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(name="cat", required = false) Integer categoryId,
+                                                        @RequestParam(name="minPrice", required = false) BigDecimal minPrice,
+                                                        @RequestParam(name="maxPrice", required = false) BigDecimal maxPrice,
+                                                        @RequestParam(name="subCategory", required = false) String subCategory,
+                                                        @RequestParam(name="format", defaultValue = "json") String format)
+    {
+        boolean ndjson;
+        switch (format.toLowerCase())
         {
-            var product = productDao.getById(id);
+            case "json":
+                ndjson = false;
+                break;
+            case "ndjson":
+                ndjson = true;
+                break;
+            case "csv":
+                StreamingResponseBody csv = out -> {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    ProductCsv.writeHeader(writer);
+                    productDao.streamSearch(categoryId, minPrice, maxPrice, subCategory, product -> {
+                        try
+                        {
+                            ProductCsv.write(writer, product);
+                        }
+                        catch (IOException e)
+                        {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    writer.flush();
+                };
+                return ResponseEntity.ok()
+                        .contentType(CSV)
+                        .body(csv);
+            default:
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be json, ndjson or csv");
+        }
 
-            if(product == null)
-                throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out))
+            {
+                if (ndjson)
+                {
+                    generator.setRootValueSeparator(new SerializedString("\n"));
+                }
+                else
+                {
+                    generator.writeStartArray();
+                }
+
+                productDao.streamSearch(categoryId, minPrice, maxPrice, subCategory, product -> {
+                    try
+                    {
+                        generator.writeObject(product);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                if (ndjson)
+                {
+                    generator.writeRaw('\n');
+                }
+                else
+                {
+                    generator.writeEndArray();
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(ndjson ? NDJSON : MediaType.APPLICATION_JSON)
+                .body(body);
+    }
 
-            return product;
+    /**
+     * Adds products in bulk from the request body, which is read as it arrives rather than buffered.
+     * Rows are inserted in batches; a row that is invalid or rejected by the database is skipped and listed in the result
+     * with its line number, and the rest are still stored. Any product_id in the body is ignored, so an export can be
+     * imported into another catalog.
+     * @param format is "csv" for a header row followed by one product per row, or "ndjson" for one JSON product per line.
+     * @return the counts of rows read, stored and rejected, the rejected rows, and the rows stored per second.
+     */
+    @PostMapping("import")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    public ImportResult importProducts(@RequestParam(name="format", defaultValue = "csv") String format, InputStream body)
+    {
+        try
+        {
+            switch (format.toLowerCase())
+            {
+                case "csv":
+                    return productImporter.importCsv(body);
+                case "ndjson":
+                    return productImporter.importNdjson(body);
+                default:
+                    throw new IllegalArgumentException("format must be csv or ndjson");
+            }
+        }
+        catch(IllegalArgumentException ex)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
         }
         catch(Exception ex)
         {
@@ -61,6 +284,20 @@ public class ProductsController
         }
     }
 
+    @GetMapping("{id}")
+    @PreAuthorize("permitAll()")
+    public Object getById(@PathVariable int id )
+    {
+        return reply(asyncProductDao.getById(id)
+                .thenApply(product -> {
+                    if(product == null)
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+
+                    return product;
+                })
+                .exceptionally(ProductsController::readFailed));
+    }
+
     @PostMapping()
     @PreAuthorize("hasRole('ROLE_ADMIN')")
     public Product addProduct(@RequestBody Product product)
@@ -107,4 +344,131 @@ public class ProductsController
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
     }
+
+    /**
+     * @return the requested page size clamped between 1 and the maximum, or the default when none was requested.
+     */
+    static int pageSize(Integer requested, int defaultSize, int maxSize)
+    {
+        if (requested == null)
+        {
+            return defaultSize;
+        }
+        if (requested < 1)
+        {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        return Math.min(requested, maxSize);
+    }
+
+    /**
+     * Hands Spring MVC the result itself when the read has already finished, as it always has with catalog.async.enabled
+     * off, or when a snapshot was cached. Spring MVC starts async processing for any returned future, even a complete one,
+     * which dispatches the request a second time. Declaring the handlers as returning Object lets Spring MVC pick how
+     * to write the reply from what is actually returned.
+     */
+    static Object reply(CompletableFuture<?> read)
+    {
+        if (!read.isDone())
+        {
+            return read;
+        }
+
+        try
+        {
+            return read.join();
+        }
+        catch (CompletionException | CancellationException ex)
+        {
+            return readFailed(ex);
+        }
+    }
+
+    /**
+     * Turns the failure of an asynchronous read into the status the synchronous endpoints answer with:
+     * 400 for a bad cursor or filter, the status of a ResponseStatusException as is, and 500 for anything else.
+     */
+    static <T> T readFailed(Throwable ex)
+    {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof ResponseStatusException)
+        {
+            throw (ResponseStatusException) cause;
+        }
+        if (cause instanceof IllegalArgumentException)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, cause.getMessage());
+        }
+        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+    }
+
+    static ResponseEntity<List<Product>> pageResponse(ProductPage page)
+    {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext())
+        {
+            response.header(NEXT_CURSOR_HEADER, page.getNext());
+        }
+        return response.body(page.getProducts());
+    }
+
+    /**
+     * Sends the snapshot bytes as they are, so neither Jackson nor the server's own compression runs for the request.
+     * The gzipped copy is chosen when Accept-Encoding allows it; other clients get the plain JSON.
+     */
+    static ResponseEntity<byte[]> snapshotResponse(CatalogSnapshots.Snapshot snapshot, String acceptEncoding)
+    {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (snapshot.getNext() != null)
+        {
+            response.header(NEXT_CURSOR_HEADER, snapshot.getNext());
+        }
+
+        byte[] body = snapshot.getJson();
+        if (acceptsGzip(acceptEncoding))
+        {
+            // a response that already carries Content-Encoding is left alone by server.compression
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = snapshot.getGzip();
+        }
+        return response.contentLength(body.length).body(body);
+    }
+
+    /**
+     * @return true when the Accept-Encoding header lists gzip, or *, without a q of zero.
+     */
+    static boolean acceptsGzip(String acceptEncoding)
+    {
+        if (acceptEncoding == null)
+        {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(","))
+        {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (!name.equalsIgnoreCase("gzip") && !name.equals("*"))
+            {
+                continue;
+            }
+
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++)
+            {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.startsWith("q=") && parameter.substring(2).matches("0(\\.0*)?"))
+                {
+                    refused = true;
+                }
+            }
+            if (!refused)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -8,12 +8,13 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
-import org.yearup.data.UserDao;
+import org.yearup.models.CartItemChange;
 import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
-import org.yearup.models.User;
+import org.yearup.security.UserIdResolver;
 
 import java.security.Principal;
+import java.util.List;
 
 /**
  * Handles operations regarding the ShoppingCart by listening to specific paths, including
@@ -27,18 +28,18 @@ import java.security.Principal;
 @CrossOrigin
 public class ShoppingCartController {
     private ShoppingCartDao shoppingCartDao;
-    private UserDao userDao;
+    private UserIdResolver userIdResolver;
     private ProductDao productDao;
 
     /**
-     * @param shoppingCartDao is injected as a Bean from MySqlShoppingCartDao
-     * @param userDao is injected as a bean from MySqlUserDao
+     * @param shoppingCartDao is injected as a Bean from CachingShoppingCartDao
+     * @param userIdResolver is injected as a Bean, and reads the user's id from their token
      * @param productDao is injected as a Bean from MySqlProductDao
      */
     @Autowired
-    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserDao userDao, ProductDao productDao) {
+    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserIdResolver userIdResolver, ProductDao productDao) {
         this.shoppingCartDao = shoppingCartDao;
-        this.userDao = userDao;
+        this.userIdResolver = userIdResolver;
         this.productDao = productDao;
     }
 
@@ -50,9 +51,7 @@ public class ShoppingCartController {
     @GetMapping("")
     public ShoppingCart getCart(Principal principal) {
         try {
-            String userName = principal.getName();
-            User user = userDao.getByUserName(userName);
-            int userId = user.getId();
+            int userId = userIdResolver.resolve(principal);
 
             return this.shoppingCartDao.getByUserId(userId);
         } catch (Exception e) {
@@ -64,19 +63,26 @@ public class ShoppingCartController {
      * Gets the authenticated user's ShoppingCart from the database after adding a Product to it. If successful, responds with Response Code 201 Created.
      * @param principal is obtained from an authenticated user making the request.
      * @param productId is obtained from the URL path.
-     * @return the user's updated ShoppingCart object from the database.
+     * @param quantity is obtained from the optional quantity query parameter, and defaults to 1.
+     * @return the user's updated ShoppingCart object from the database, or Response Status 404 if the product does not exist.
      */
     @PostMapping("products/{productId}")
     @ResponseStatus(value = HttpStatus.CREATED)
-    public ShoppingCart addToCart(Principal principal, @PathVariable int productId) {
+    public ShoppingCart addToCart(Principal principal, @PathVariable int productId,
+                                  @RequestParam(name = "quantity", defaultValue = "1") int quantity) {
 
-        String userName = principal.getName();
-        User user = userDao.getByUserName(userName);
-        int userId = user.getId();
+        int userId = userIdResolver.resolve(principal);
+
+        if (quantity < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be at least 1");
+        }
 
         Product p = this.productDao.getById(productId);
+        if (p == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
 
-        return this.shoppingCartDao.addProductToCart(p, userId);
+        return this.shoppingCartDao.addProductToCart(p, userId, quantity);
     }
 
     /**
@@ -89,28 +95,52 @@ public class ShoppingCartController {
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
     public void updateProductInCart(Principal principal, @PathVariable int productId, @RequestBody Product product) {
 
-        String userName = principal.getName();
-        User user = userDao.getByUserName(userName);
-        int userId = user.getId();
+        int userId = userIdResolver.resolve(principal);
 
         this.shoppingCartDao.updateProductInCart(product, productId, userId);
     }
 
     /**
-     * Removes a product in the authenticated user's ShoppingCart by deleting the record within the database.
+     * Removes a product in the authenticated user's ShoppingCart, decrementing its quantity or deleting the record within the database.
      * If successful, responds with Response Code 204 No Content.
      * @param principal is obtained from an authenticated user making the request.
      * @param productId is obtained from the URL path.
+     * @param quantity is obtained from the optional quantity query parameter, and defaults to 1.
      */
     @DeleteMapping("remove/{productId}")
     @ResponseStatus(value = HttpStatus.NO_CONTENT)
-    public void removeProductInCart(Principal principal, @PathVariable int productId) {
+    public void removeProductInCart(Principal principal, @PathVariable int productId,
+                                    @RequestParam(name = "quantity", defaultValue = "1") int quantity) {
+
+        int userId = userIdResolver.resolve(principal);
+
+        if (quantity < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "quantity must be at least 1");
+        }
+
+        this.shoppingCartDao.removeProductInCart(productId, userId, quantity);
+    }
 
-        String userName = principal.getName();
-        User user = userDao.getByUserName(userName);
-        int userId = user.getId();
+    /**
+     * Applies a list of quantity changes to the authenticated user's ShoppingCart in one transaction.
+     * A positive quantityDelta adds to a product, a negative one removes from it, and an item that reaches zero is removed.
+     * @param principal is obtained from an authenticated user making the request.
+     * @param changes is obtained from the request body as a list of {productId, quantityDelta} objects.
+     * @return the user's updated ShoppingCart object, or Response Status 404 if a product being added does not exist.
+     */
+    @PatchMapping("")
+    @ResponseStatus(value = HttpStatus.OK)
+    public ShoppingCart updateCart(Principal principal, @RequestBody List<CartItemChange> changes) {
+
+        int userId = userIdResolver.resolve(principal);
+
+        for (CartItemChange change : changes) {
+            if (change.getQuantityDelta() > 0 && this.productDao.getById(change.getProductId()) == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product " + change.getProductId() + " does not exist.");
+            }
+        }
 
-        this.shoppingCartDao.removeProductInCart(productId, userId);
+        return this.shoppingCartDao.updateCart(userId, changes);
     }
 
     /**
@@ -122,9 +152,7 @@ public class ShoppingCartController {
     @ResponseStatus(value = HttpStatus.OK)
     public ShoppingCart emptyCart(Principal principal) {
 
-        String userName = principal.getName();
-        User user = userDao.getByUserName(userName);
-        int userId = user.getId();
+        int userId = userIdResolver.resolve(principal);
 
         return this.shoppingCartDao.emptyCart(userId);
     }
@@ -0,0 +1,15 @@
+package org.yearup.data;
+
+import org.yearup.models.Category;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The read paths of CategoryDao, answered with futures so the request thread can be let go while a query runs.
+ */
+public interface AsyncCategoryDao
+{
+    CompletableFuture<List<Category>> getAllCategories();
+    CompletableFuture<Category> getById(int categoryId);
+}
@@ -0,0 +1,20 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The catalog read paths of ProductDao, answered with futures so the request thread can be let go while a query runs.
+ */
+public interface AsyncProductDao
+{
+    CompletableFuture<ProductPage> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, ProductSort sort, String after, int limit);
+    CompletableFuture<ProductPage> listByCategoryId(int categoryId, ProductSort sort, String after, int limit);
+    CompletableFuture<List<Product>> listFeatured();
+    CompletableFuture<Product> getById(int productId);
+}
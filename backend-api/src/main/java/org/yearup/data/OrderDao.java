@@ -0,0 +1,8 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+
+public interface OrderDao
+{
+    Order checkout(int userId);
+}
@@ -0,0 +1,21 @@
+package org.yearup.data;
+
+/**
+ * Thrown when an order asks for more of a product than is left in stock.
+ * Nothing the order touched is kept when this is thrown.
+ */
+public class OutOfStockException extends RuntimeException
+{
+    private final int productId;
+
+    public OutOfStockException(int productId)
+    {
+        super("Not enough of product " + productId + " in stock.");
+        this.productId = productId;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+}
@@ -0,0 +1,16 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+
+/**
+ * Told about every product write made through the primary ProductDao, so in-memory views of the catalog stay current.
+ */
+public interface ProductChangeListener
+{
+    /**
+     * @param product is the product as it is stored now, after being created or updated.
+     */
+    void productSaved(Product product);
+
+    void productDeleted(int productId);
+}
@@ -0,0 +1,123 @@
+package org.yearup.data;
+
+import org.yearup.models.Product;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The position of the last product on a page, handed to clients as an opaque token.
+ * Holds the sort it was created for, the sort value of that product and its id,
+ * which is everything a DAO needs to continue the listing with a keyset predicate.
+ */
+public class ProductCursor
+{
+    private static final String SEPARATOR = "|";
+
+    private final ProductSort sort;
+    private final int productId;
+    private final String value;
+
+    private ProductCursor(ProductSort sort, int productId, String value)
+    {
+        this.sort = sort;
+        this.productId = productId;
+        this.value = value;
+    }
+
+    /**
+     * @param sort is the order the page was listed in.
+     * @param last is the last product on the page.
+     * @return a cursor positioned just after the product.
+     */
+    public static ProductCursor after(ProductSort sort, Product last)
+    {
+        String value;
+        switch (sort)
+        {
+            case NAME:
+                value = last.getName();
+                break;
+            case PRICE:
+                value = last.getPrice().toPlainString();
+                break;
+            default:
+                value = "";
+        }
+        return new ProductCursor(sort, last.getProductId(), value);
+    }
+
+    /**
+     * @param token is a token previously produced by encode().
+     * @param sort is the order the caller is listing in now.
+     * @return the decoded cursor.
+     * @throws IllegalArgumentException if the token is malformed or was created for a different sort.
+     */
+    public static ProductCursor decode(String token, ProductSort sort)
+    {
+        String decoded;
+        try
+        {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Malformed cursor.", e);
+        }
+
+        // The value goes last, so a product name containing the separator still decodes correctly.
+        String[] parts = decoded.split("\\" + SEPARATOR, 3);
+        if (parts.length != 3)
+        {
+            throw new IllegalArgumentException("Malformed cursor.");
+        }
+
+        ProductCursor cursor;
+        try
+        {
+            cursor = new ProductCursor(ProductSort.valueOf(parts[0]), Integer.parseInt(parts[1]), parts[2]);
+            if (cursor.sort == ProductSort.PRICE)
+            {
+                new BigDecimal(cursor.value);
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Malformed cursor.", e);
+        }
+
+        if (cursor.sort != sort)
+        {
+            throw new IllegalArgumentException("Cursor was created for sort " + cursor.sort + ", not " + sort + ".");
+        }
+        return cursor;
+    }
+
+    public String encode()
+    {
+        String raw = sort.name() + SEPARATOR + productId + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ProductSort getSort()
+    {
+        return sort;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public String getName()
+    {
+        return value;
+    }
+
+    public BigDecimal getPrice()
+    {
+        return new BigDecimal(value);
+    }
+}
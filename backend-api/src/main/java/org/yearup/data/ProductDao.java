@@ -1,16 +1,24 @@
 package org.yearup.data;
 
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProductDao
 {
     List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory);
+    ProductPage search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, ProductSort sort, String after, int limit);
+    void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, Consumer<Product> consumer);
     List<Product> listByCategoryId(int categoryId);
+    ProductPage listByCategoryId(int categoryId, ProductSort sort, String after, int limit);
+    List<Product> listFeatured();
     Product getById(int productId);
     Product create(Product product);
+    List<Product> createAll(List<Product> products);
     void update(int productId, Product product);
     void delete(int productId);
 }
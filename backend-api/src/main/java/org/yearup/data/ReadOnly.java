@@ -0,0 +1,20 @@
+package org.yearup.data;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DAO method that only reads, and can be answered by a replica that lags the primary by a moment.
+ * Only catalog reads are marked. Carts, orders, profiles and users are always read from the primary,
+ * so a user sees their own writes on the very next request.
+ * Applies when the DAO is called through its Spring Bean. A call from another method of the same DAO is routed like its caller.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadOnly
+{
+}
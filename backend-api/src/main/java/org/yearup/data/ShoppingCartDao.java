@@ -1,13 +1,19 @@
 package org.yearup.data;
 
+import org.yearup.models.CartItemChange;
 import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
 
+import java.util.List;
+
 public interface ShoppingCartDao
 {
     ShoppingCart getByUserId(int userId);
     ShoppingCart addProductToCart(Product product, int userId);
+    ShoppingCart addProductToCart(Product product, int userId, int quantity);
     void updateProductInCart(Product product, int productId, int userId);
     void removeProductInCart(int productId, int userId);
+    void removeProductInCart(int productId, int userId, int quantity);
+    ShoppingCart updateCart(int userId, List<CartItemChange> changes);
     ShoppingCart emptyCart(int userId);
 }
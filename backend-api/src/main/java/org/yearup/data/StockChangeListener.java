@@ -0,0 +1,16 @@
+package org.yearup.data;
+
+import java.util.Collection;
+
+/**
+ * Told about stock changes written straight to products.stock rather than through the primary ProductDao,
+ * such as a checkout taking stock or StockReservations flushing queued orders.
+ */
+public interface StockChangeListener
+{
+    /**
+     * Called after the change has committed.
+     * @param productIds are the products whose stock moved.
+     */
+    void stockChanged(Collection<Integer> productIds);
+}
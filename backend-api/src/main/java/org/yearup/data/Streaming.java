@@ -0,0 +1,20 @@
+package org.yearup.data;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a DAO method that keeps its connection for as long as its caller takes to consume the rows, such as an export.
+ * Its connection comes from the streaming pool, which has no abandoned-connection timeout,
+ * so a stream that runs for minutes is not mistaken for a leaked connection and closed partway through.
+ * Applies when the DAO is called through its Spring Bean.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Streaming
+{
+}
@@ -0,0 +1,13 @@
+package org.yearup.data;
+
+/**
+ * Thrown when a new user asks for a username another account already has.
+ * Detected by the unique index on users.username, so two registrations racing for one name cannot both succeed.
+ */
+public class UsernameTakenException extends RuntimeException
+{
+    public UsernameTakenException(String username)
+    {
+        super("The username " + username + " is already taken.");
+    }
+}
@@ -0,0 +1,65 @@
+package org.yearup.data.async;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.configurations.StatementTracer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Where the AsyncProductDao and AsyncCategoryDao reads run.
+ * When catalog.async.enabled is on, each read gets its own virtual thread, and the Tomcat worker that asked for it is
+ * released until the result is ready, so in-flight reads are limited by the connection pool rather than by worker threads.
+ * When it is off, reads run on the calling thread and the futures are already complete when returned, so the controllers
+ * reply with their results directly rather than through Spring MVC's async processing.
+ */
+@Component
+public class CatalogReadExecutor
+{
+    private final ExecutorService executor;
+
+    /**
+     * @param enabled is whether reads run on virtual threads rather than the calling thread.
+     */
+    public CatalogReadExecutor(@Value("${catalog.async.enabled:false}") boolean enabled)
+    {
+        this.executor = enabled
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("catalog-read-", 0).factory())
+                : null;
+    }
+
+    public boolean isEnabled()
+    {
+        return executor != null;
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> read)
+    {
+        if (executor == null)
+        {
+            try
+            {
+                return CompletableFuture.completedFuture(read.get());
+            }
+            catch (RuntimeException e)
+            {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        // the statements a read runs still count towards the request that asked for it
+        return CompletableFuture.supplyAsync(StatementTracer.propagate(read), executor);
+    }
+
+    @PreDestroy
+    public void stop()
+    {
+        if (executor != null)
+        {
+            executor.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.yearup.data.async;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.AsyncCategoryDao;
+import org.yearup.data.CategoryDao;
+import org.yearup.models.Category;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the category reads on the CatalogReadExecutor.
+ */
+@Component
+public class ExecutorCategoryDao implements AsyncCategoryDao
+{
+    private final CategoryDao categoryDao;
+    private final CatalogReadExecutor executor;
+
+    /**
+     * @param categoryDao is injected as a Bean from MySqlCategoryDao
+     */
+    @Autowired
+    public ExecutorCategoryDao(CategoryDao categoryDao, CatalogReadExecutor executor)
+    {
+        this.categoryDao = categoryDao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<List<Category>> getAllCategories()
+    {
+        return executor.supply(categoryDao::getAllCategories);
+    }
+
+    @Override
+    public CompletableFuture<Category> getById(int categoryId)
+    {
+        return executor.supply(() -> categoryDao.getById(categoryId));
+    }
+}
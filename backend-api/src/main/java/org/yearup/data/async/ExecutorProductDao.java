@@ -0,0 +1,59 @@
+package org.yearup.data.async;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.AsyncProductDao;
+import org.yearup.data.ProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the product reads on the CatalogReadExecutor.
+ * Reads still go through CachingProductDao, so a cache hit costs a virtual thread but no query.
+ */
+@Component
+public class ExecutorProductDao implements AsyncProductDao
+{
+    private final ProductDao productDao;
+    private final CatalogReadExecutor executor;
+
+    /**
+     * @param productDao is injected as a Bean from CachingProductDao
+     */
+    @Autowired
+    public ExecutorProductDao(ProductDao productDao, CatalogReadExecutor executor)
+    {
+        this.productDao = productDao;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<ProductPage> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                                 ProductSort sort, String after, int limit)
+    {
+        return executor.supply(() -> productDao.search(categoryId, minPrice, maxPrice, subCategory, sort, after, limit));
+    }
+
+    @Override
+    public CompletableFuture<ProductPage> listByCategoryId(int categoryId, ProductSort sort, String after, int limit)
+    {
+        return executor.supply(() -> productDao.listByCategoryId(categoryId, sort, after, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<Product>> listFeatured()
+    {
+        return executor.supply(productDao::listFeatured);
+    }
+
+    @Override
+    public CompletableFuture<Product> getById(int productId)
+    {
+        return executor.supply(() -> productDao.getById(productId));
+    }
+}
@@ -0,0 +1,257 @@
+package org.yearup.data.bulk;
+
+import org.yearup.models.Product;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes products as CSV, one record at a time, so neither side ever holds the whole file.
+ * Columns are named after the products table: product_id, name, price, category_id, description, subcategory,
+ * image_url, stock and featured. A file may list them in any order, and only name, price and category_id are required.
+ * Fields follow RFC 4180: a field holding a comma, quote or line break is quoted, with quotes inside it doubled.
+ */
+public class ProductCsv
+{
+    public static final String[] COLUMNS = { "product_id", "name", "price", "category_id", "description", "subcategory",
+            "image_url", "stock", "featured" };
+
+    private static final String[] REQUIRED = { "name", "price", "category_id" };
+
+    private final Reader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private long line = 1;
+    private long recordLine;
+    private int peeked = -2;
+
+    /**
+     * Reads the header record, so the columns are known before the first product is read.
+     * @param reader should be buffered, since it is read a character at a time.
+     * @throws IllegalArgumentException when the header is missing or lacks a required column.
+     */
+    public ProductCsv(Reader reader) throws IOException
+    {
+        this.reader = reader;
+
+        List<String> header = nextRecord();
+        if (header == null)
+        {
+            throw new IllegalArgumentException("The CSV is empty; it must start with a header row.");
+        }
+        for (int i = 0; i < header.size(); i++)
+        {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        for (String column : REQUIRED)
+        {
+            if (!columns.containsKey(column))
+            {
+                throw new IllegalArgumentException("The CSV header has no " + column + " column.");
+            }
+        }
+    }
+
+    /**
+     * @return the next record as a product, or null at the end of the file. Its product_id, if any, is ignored.
+     * @throws IllegalArgumentException when a field of the record is not a valid value. The next call moves on to the following record.
+     */
+    public Product next() throws IOException
+    {
+        List<String> record = nextRecord();
+        if (record == null)
+        {
+            return null;
+        }
+
+        Product product = new Product();
+        product.setName(field(record, "name"));
+        product.setPrice(new BigDecimal(required(record, "price")));
+        product.setCategoryId(Integer.parseInt(required(record, "category_id")));
+        product.setDescription(field(record, "description"));
+        product.setSubCategory(field(record, "subcategory"));
+        product.setImageUrl(field(record, "image_url"));
+        String stock = field(record, "stock");
+        product.setStock(stock == null ? 0 : Integer.parseInt(stock));
+        String featured = field(record, "featured");
+        product.setFeatured(featured != null && (featured.equalsIgnoreCase("true") || featured.equals("1")));
+        return product;
+    }
+
+    /**
+     * @return the line the record last returned by next() starts on, counting from 1 with the header.
+     */
+    public long getLine()
+    {
+        return recordLine;
+    }
+
+    public static void writeHeader(Writer writer) throws IOException
+    {
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+    }
+
+    public static void write(Writer writer, Product product) throws IOException
+    {
+        writer.write(Integer.toString(product.getProductId()));
+        writer.write(',');
+        writer.write(quote(product.getName()));
+        writer.write(',');
+        writer.write(product.getPrice() == null ? "" : product.getPrice().toPlainString());
+        writer.write(',');
+        writer.write(Integer.toString(product.getCategoryId()));
+        writer.write(',');
+        writer.write(quote(product.getDescription()));
+        writer.write(',');
+        writer.write(quote(product.getSubCategory()));
+        writer.write(',');
+        writer.write(quote(product.getImageUrl()));
+        writer.write(',');
+        writer.write(Integer.toString(product.getStock()));
+        writer.write(',');
+        writer.write(Boolean.toString(product.isFeatured()));
+        writer.write("\r\n");
+    }
+
+    static String quote(String value)
+    {
+        if (value == null)
+        {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+        {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * @return the field, or null when the column is absent or the field is empty.
+     */
+    private String field(List<String> record, String column)
+    {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size() || record.get(index).isEmpty())
+        {
+            return null;
+        }
+        return record.get(index);
+    }
+
+    private String required(List<String> record, String column)
+    {
+        String value = field(record, column);
+        if (value == null)
+        {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return value.trim();
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the file. Blank lines are skipped.
+     */
+    private List<String> nextRecord() throws IOException
+    {
+        int c = read();
+        while (c == '\r' || c == '\n')
+        {
+            c = read();
+        }
+        if (c == -1)
+        {
+            return null;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (true)
+        {
+            if (quoted)
+            {
+                if (c == -1)
+                {
+                    throw new IllegalArgumentException("A quoted field starting on line " + recordLine + " is never closed.");
+                }
+                if (c == '"')
+                {
+                    if (peek() == '"')
+                    {
+                        read();
+                        field.append('"');
+                    }
+                    else
+                    {
+                        quoted = false;
+                    }
+                }
+                else
+                {
+                    field.append((char) c);
+                }
+            }
+            else if (c == '"' && field.length() == 0)
+            {
+                quoted = true;
+            }
+            else if (c == ',')
+            {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\r' || c == '\n' || c == -1)
+            {
+                if (c == '\r' && peek() == '\n')
+                {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            else
+            {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException
+    {
+        int c;
+        if (peeked != -2)
+        {
+            c = peeked;
+            peeked = -2;
+        }
+        else
+        {
+            c = reader.read();
+        }
+
+        if (c == '\n')
+        {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException
+    {
+        if (peeked == -2)
+        {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+}
@@ -0,0 +1,263 @@
+package org.yearup.data.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.models.ImportResult;
+import org.yearup.models.ImportRowError;
+import org.yearup.models.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads products from a CSV or NDJSON stream into the catalog.
+ * The stream is parsed a row at a time and stored in chunks of catalog.import.chunk-size through ProductDao.createAll,
+ * so memory use depends on the chunk size rather than on the size of the file.
+ * A row that cannot be parsed or is invalid is reported with its line and skipped. When a chunk is rejected by the
+ * database, such as for an unknown category, its rows are retried one at a time so only the bad rows are reported.
+ */
+@Component
+public class ProductImporter
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductImporter.class);
+
+    private final ProductDao productDao;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    /**
+     * @param productDao is injected as the primary ProductDao, so imported products reach the caches and indexes.
+     * @param chunkSize is how many rows are inserted per batch and transaction.
+     * @param maxErrors is how many rejected rows are listed in the result. Every rejected row is still counted.
+     */
+    @Autowired
+    public ProductImporter(ProductDao productDao,
+                           ObjectMapper objectMapper,
+                           @Value("${catalog.import.chunk-size:1000}") int chunkSize,
+                           @Value("${catalog.import.max-errors:100}") int maxErrors)
+    {
+        if (chunkSize < 1)
+        {
+            throw new IllegalArgumentException("catalog.import.chunk-size must be at least 1");
+        }
+        this.productDao = productDao;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * @param in is CSV with a header row, as described by ProductCsv.
+     * @throws IllegalArgumentException when the header row is missing or incomplete.
+     */
+    public ImportResult importCsv(InputStream in) throws IOException
+    {
+        long start = System.nanoTime();
+        ProductCsv csv = new ProductCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        return run(start, new Rows()
+        {
+            @Override
+            public Product next() throws IOException
+            {
+                return csv.next();
+            }
+
+            @Override
+            public long getLine()
+            {
+                return csv.getLine();
+            }
+        });
+    }
+
+    /**
+     * @param in is one JSON product per line, in the form the product endpoints return. Blank lines are skipped.
+     */
+    public ImportResult importNdjson(InputStream in) throws IOException
+    {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return run(start, new Rows()
+        {
+            private long line;
+
+            @Override
+            public Product next() throws IOException
+            {
+                String json = reader.readLine();
+                line++;
+                while (json != null && json.isBlank())
+                {
+                    json = reader.readLine();
+                    line++;
+                }
+                if (json == null)
+                {
+                    return null;
+                }
+
+                try
+                {
+                    return objectMapper.readValue(json, Product.class);
+                }
+                catch (JsonProcessingException e)
+                {
+                    throw new IllegalArgumentException("not a valid product: " + e.getOriginalMessage());
+                }
+            }
+
+            @Override
+            public long getLine()
+            {
+                return line;
+            }
+        });
+    }
+
+    private ImportResult run(long start, Rows rows) throws IOException
+    {
+        ImportResult result = new ImportResult();
+        List<Product> chunk = new ArrayList<>(chunkSize);
+        List<Long> lines = new ArrayList<>(chunkSize);
+
+        while (true)
+        {
+            Product product;
+            try
+            {
+                product = rows.next();
+                if (product == null)
+                {
+                    break;
+                }
+                validate(product);
+            }
+            catch (IllegalArgumentException e)
+            {
+                result.setRowsRead(result.getRowsRead() + 1);
+                reject(result, rows.getLine(), e.getMessage());
+                continue;
+            }
+
+            result.setRowsRead(result.getRowsRead() + 1);
+            chunk.add(product);
+            lines.add(rows.getLine());
+            if (chunk.size() == chunkSize)
+            {
+                store(result, chunk, lines);
+            }
+        }
+        store(result, chunk, lines);
+
+        result.setMillis((System.nanoTime() - start) / 1_000_000);
+        LOG.info("Imported {} of {} products in {} ms ({} rows/s), {} rejected",
+                result.getRowsImported(), result.getRowsRead(), result.getMillis(),
+                Math.round(result.getRowsPerSecond()), result.getRowsFailed());
+        return result;
+    }
+
+    /**
+     * Inserts the chunk, then empties it. A chunk the database rejects is retried row by row.
+     */
+    private void store(ImportResult result, List<Product> chunk, List<Long> lines)
+    {
+        if (chunk.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            result.setRowsImported(result.getRowsImported() + productDao.createAll(chunk).size());
+        }
+        catch (RuntimeException chunkFailure)
+        {
+            // the chunk was rolled back as a whole, so every row can be tried again on its own
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                try
+                {
+                    result.setRowsImported(result.getRowsImported() + productDao.createAll(List.of(chunk.get(i))).size());
+                }
+                catch (RuntimeException e)
+                {
+                    reject(result, lines.get(i), "could not be stored: " + rootMessage(e));
+                }
+            }
+        }
+
+        chunk.clear();
+        lines.clear();
+    }
+
+    private void reject(ImportResult result, long line, String message)
+    {
+        result.setRowsFailed(result.getRowsFailed() + 1);
+        if (result.getErrors().size() < maxErrors)
+        {
+            result.getErrors().add(new ImportRowError(line, message));
+        }
+    }
+
+    /**
+     * Checks what the products table does not, so a bad row is reported with a clear message instead of a SQL error.
+     */
+    static void validate(Product product)
+    {
+        if (product.getName() == null || product.getName().isBlank())
+        {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) < 0)
+        {
+            throw new IllegalArgumentException("price must be zero or more");
+        }
+        if (product.getCategoryId() < 1)
+        {
+            throw new IllegalArgumentException("category_id must be a category's id");
+        }
+        if (product.getStock() < 0)
+        {
+            throw new IllegalArgumentException("stock must be zero or more");
+        }
+    }
+
+    private static String rootMessage(Throwable e)
+    {
+        while (e.getCause() != null)
+        {
+            e = e.getCause();
+        }
+        return e.getMessage();
+    }
+
+    /**
+     * The rows of one import file, parsed one at a time.
+     */
+    private interface Rows
+    {
+        /**
+         * @return the next row, or null at the end.
+         * @throws IllegalArgumentException when the row cannot be parsed; the following call moves on to the next row.
+         */
+        Product next() throws IOException;
+
+        /**
+         * @return the line the row last returned starts on.
+         */
+        long getLine();
+    }
+}
@@ -0,0 +1,409 @@
+package org.yearup.data.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.data.ProductDao;
+import org.yearup.data.StockChangeListener;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Serves product reads from memory and passes writes through to MySqlProductDao.
+ * Reads by id, by category and by search filter are each kept in their own LRU cache.
+ * Writes only evict the entries that the changed product could appear in, so the rest of the catalog stays warm.
+ * A read that a write's eviction overtook is returned but not cached, since it may have seen the row before the write.
+ * Marked as Primary, so the controllers receive this Bean whenever they ask for a ProductDao.
+ * Every write is also passed on to the ProductChangeListener Beans, such as the search index.
+ * Stock taken by checkouts is written to products.stock directly, and reported here as a StockChangeListener,
+ * so those products are evicted and passed on the same way.
+ * The hits, misses, evictions and size of each cache are published as product.cache.* meters, tagged by cache.
+ */
+@Component
+@Primary
+public class CachingProductDao implements ProductDao, StockChangeListener, MeterBinder
+{
+    private final ProductDao delegate;
+    private final LruCache<Integer, Product> productsById;
+    private final LruCache<Integer, List<Product>> productsByCategory;
+    private final LruCache<SearchKey, List<Product>> searches;
+    private final LruCache<PageKey, ProductPage> pages;
+    private List<ProductChangeListener> listeners = new ArrayList<>();
+
+    /**
+     * @param delegate is injected as a Bean from MySqlProductDao
+     * @param maxProducts is the number of single products kept in memory.
+     * @param maxQueries is the number of category lists and search results kept in memory.
+     */
+    @Autowired
+    public CachingProductDao(MySqlProductDao delegate,
+                             @Value("${catalog.cache.max-products:10000}") int maxProducts,
+                             @Value("${catalog.cache.max-queries:1000}") int maxQueries)
+    {
+        this.delegate = delegate;
+        this.productsById = new LruCache<>(maxProducts);
+        this.productsByCategory = new LruCache<>(maxQueries);
+        this.searches = new LruCache<>(maxQueries);
+        this.pages = new LruCache<>(maxQueries);
+    }
+
+    /**
+     * @param listeners are injected as every ProductChangeListener Bean.
+     */
+    @Autowired(required = false)
+    public void setListeners(List<ProductChangeListener> listeners)
+    {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        SearchKey key = new SearchKey(categoryId, minPrice, maxPrice, subCategory);
+
+        List<Product> products = searches.get(key);
+        if (products == null)
+        {
+            long stamp = searches.stamp(key);
+            products = Collections.unmodifiableList(delegate.search(categoryId, minPrice, maxPrice, subCategory));
+            searches.putIfUnchanged(key, products, stamp);
+        }
+        return products;
+    }
+
+    @Override
+    public ProductPage search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                              ProductSort sort, String after, int limit)
+    {
+        PageKey key = new PageKey(new SearchKey(categoryId, minPrice, maxPrice, subCategory), sort, after, limit);
+
+        ProductPage page = pages.get(key);
+        if (page == null)
+        {
+            long stamp = pages.stamp(key);
+            ProductPage loaded = delegate.search(categoryId, minPrice, maxPrice, subCategory, sort, after, limit);
+            page = new ProductPage(Collections.unmodifiableList(loaded.getProducts()), loaded.getNext());
+            pages.putIfUnchanged(key, page, stamp);
+        }
+        return page;
+    }
+
+    /**
+     * Never cached, since a full export would flush everything else out of the cache.
+     */
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        delegate.streamSearch(categoryId, minPrice, maxPrice, subCategory, consumer);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId)
+    {
+        List<Product> products = productsByCategory.get(categoryId);
+        if (products == null)
+        {
+            long stamp = productsByCategory.stamp(categoryId);
+            products = Collections.unmodifiableList(delegate.listByCategoryId(categoryId));
+            productsByCategory.putIfUnchanged(categoryId, products, stamp);
+        }
+        return products;
+    }
+
+    @Override
+    public ProductPage listByCategoryId(int categoryId, ProductSort sort, String after, int limit)
+    {
+        return search(categoryId, null, null, null, sort, after, limit);
+    }
+
+    /**
+     * Not cached here, since CatalogSnapshots keeps the serialized list and rebuilds it only when the catalog changes.
+     */
+    @Override
+    public List<Product> listFeatured()
+    {
+        return delegate.listFeatured();
+    }
+
+    @Override
+    public Product getById(int productId)
+    {
+        Product product = productsById.get(productId);
+        if (product == null)
+        {
+            // a write that commits and evicts while this read runs leaves the stamp behind, so the read is not cached
+            long stamp = productsById.stamp(productId);
+            product = delegate.getById(productId);
+            productsById.putIfUnchanged(productId, product, stamp);
+        }
+        return product;
+    }
+
+    @Override
+    public Product create(Product product)
+    {
+        Product created = delegate.create(product);
+
+        // A new product cannot be in the id cache yet, only in lists it now belongs to.
+        evictListsContaining(created);
+        listeners.forEach(listener -> listener.productSaved(created));
+        return created;
+    }
+
+    /**
+     * Clears the cached lists once for the whole batch, rather than searching them for every product it adds.
+     */
+    @Override
+    public List<Product> createAll(List<Product> products)
+    {
+        List<Product> created = delegate.createAll(products);
+
+        if (!created.isEmpty())
+        {
+            productsByCategory.clear();
+            searches.clear();
+            pages.clear();
+            created.forEach(product -> listeners.forEach(listener -> listener.productSaved(product)));
+        }
+        return created;
+    }
+
+    @Override
+    public void update(int productId, Product product)
+    {
+        Product before = getById(productId);
+
+        delegate.update(productId, product);
+
+        productsById.remove(productId);
+        evictListsContaining(before);
+        evictListsContaining(product);
+
+        if (!listeners.isEmpty())
+        {
+            // Read back, since the request body may leave out fields such as the id.
+            Product saved = getById(productId);
+            if (saved != null)
+            {
+                listeners.forEach(listener -> listener.productSaved(saved));
+            }
+        }
+    }
+
+    @Override
+    public void delete(int productId)
+    {
+        Product before = getById(productId);
+
+        delegate.delete(productId);
+
+        productsById.remove(productId);
+        evictListsContaining(before);
+        listeners.forEach(listener -> listener.productDeleted(productId));
+    }
+
+    /**
+     * Evicts the products whose stock moved, and the lists they appear in, then passes them on as saved.
+     * Stock is not a filter, so the lists holding a product are the same before and after.
+     */
+    @Override
+    public void stockChanged(Collection<Integer> productIds)
+    {
+        for (int productId : productIds)
+        {
+            Product before = getById(productId);
+
+            productsById.remove(productId);
+            evictListsContaining(before);
+
+            if (!listeners.isEmpty())
+            {
+                Product saved = getById(productId);
+                if (saved != null)
+                {
+                    listeners.forEach(listener -> listener.productSaved(saved));
+                }
+            }
+        }
+    }
+
+    /**
+     * Evicts the category list and every cached search result that the product matches.
+     * @param product is the product as it was before, or is after, a write. Ignored when null.
+     */
+    private void evictListsContaining(Product product)
+    {
+        if (product == null)
+        {
+            return;
+        }
+        productsByCategory.remove(product.getCategoryId());
+        searches.removeIf(key -> key.matches(product));
+        // Any page of a matching listing may shift when a product enters or leaves it, not just the page it is on.
+        pages.removeIf(key -> key.filter.matches(product));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        bindCache(registry, "by-id", productsById);
+        bindCache(registry, "by-category", productsByCategory);
+        bindCache(registry, "searches", searches);
+        bindCache(registry, "pages", pages);
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, LruCache<?, ?> cache)
+    {
+        FunctionCounter.builder("product.cache.requests", cache, LruCache::getHitCount)
+                .description("Product reads looked up in memory")
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("product.cache.requests", cache, LruCache::getMissCount)
+                .description("Product reads looked up in memory")
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("product.cache.evictions", cache, LruCache::getEvictionCount)
+                .description("Entries dropped to make room for newer ones")
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("product.cache.size", cache, LruCache::size)
+                .description("Entries held in memory")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    public LruCache<Integer, Product> getProductsById()
+    {
+        return productsById;
+    }
+
+    public LruCache<Integer, List<Product>> getProductsByCategory()
+    {
+        return productsByCategory;
+    }
+
+    public LruCache<SearchKey, List<Product>> getSearches()
+    {
+        return searches;
+    }
+
+    public LruCache<PageKey, ProductPage> getPages()
+    {
+        return pages;
+    }
+
+    /**
+     * The filter values of one call to search, used as the key of a cached result.
+     * Prices are normalized so that 10 and 10.00 share the same entry.
+     */
+    static final class SearchKey
+    {
+        private final Integer categoryId;
+        private final BigDecimal minPrice;
+        private final BigDecimal maxPrice;
+        private final String subCategory;
+
+        SearchKey(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+        {
+            this.categoryId = categoryId;
+            this.minPrice = minPrice == null ? null : minPrice.stripTrailingZeros();
+            this.maxPrice = maxPrice == null ? null : maxPrice.stripTrailingZeros();
+            // An empty subcategory is not a filter, so it shares the entry of a missing one.
+            this.subCategory = subCategory == null || subCategory.isEmpty() ? null : subCategory;
+        }
+
+        /**
+         * Mirrors the WHERE clause of MySqlProductDao.search.
+         * @return true if the product would be part of the result for this key.
+         */
+        boolean matches(Product product)
+        {
+            if (categoryId != null && categoryId != product.getCategoryId())
+            {
+                return false;
+            }
+            if (minPrice != null && (product.getPrice() == null || product.getPrice().compareTo(minPrice) < 0))
+            {
+                return false;
+            }
+            if (maxPrice != null && (product.getPrice() == null || product.getPrice().compareTo(maxPrice) > 0))
+            {
+                return false;
+            }
+            // MySQL compares strings without case sensitivity under the default collation.
+            return subCategory == null || subCategory.equalsIgnoreCase(product.getSubCategory());
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SearchKey that = (SearchKey) o;
+            return Objects.equals(categoryId, that.categoryId) &&
+                    Objects.equals(minPrice, that.minPrice) &&
+                    Objects.equals(maxPrice, that.maxPrice) &&
+                    Objects.equals(subCategory, that.subCategory);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(categoryId, minPrice, maxPrice, subCategory);
+        }
+    }
+
+    /**
+     * The filter, order and position of one page of a listing, used as the key of a cached page.
+     */
+    static final class PageKey
+    {
+        private final SearchKey filter;
+        private final ProductSort sort;
+        private final String after;
+        private final int limit;
+
+        PageKey(SearchKey filter, ProductSort sort, String after, int limit)
+        {
+            this.filter = filter;
+            this.sort = sort;
+            this.after = after;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PageKey that = (PageKey) o;
+            return limit == that.limit &&
+                    filter.equals(that.filter) &&
+                    sort == that.sort &&
+                    Objects.equals(after, that.after);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(filter, sort, after, limit);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.yearup.data.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.CartItemChange;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves each user's cart from CartSnapshotCache and passes writes through to MySqlShoppingCartDao.
+ * A write to a cached cart is applied to the cached copy as well, instead of reading the cart back from the database.
+ * A cart that is not cached is read once, and kept from then on.
+ * Marked as Primary, so the controllers receive this Bean whenever they ask for a ShoppingCartDao.
+ */
+@Component
+@Primary
+public class CachingShoppingCartDao implements ShoppingCartDao
+{
+    private final MySqlShoppingCartDao delegate;
+    private final CartSnapshotCache carts;
+
+    /**
+     * @param delegate is injected as a Bean from MySqlShoppingCartDao
+     * @param carts is injected as a Bean, and holds the cached carts.
+     */
+    @Autowired
+    public CachingShoppingCartDao(MySqlShoppingCartDao delegate, CartSnapshotCache carts)
+    {
+        this.delegate = delegate;
+        this.carts = carts;
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId)
+    {
+        if (!carts.isEnabled())
+        {
+            return delegate.getByUserId(userId);
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            ShoppingCart cart = carts.get(userId);
+            if (cart == null)
+            {
+                cart = delegate.getByUserId(userId);
+                carts.put(userId, cart);
+            }
+            return cart;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ShoppingCart addProductToCart(Product product, int userId)
+    {
+        return addProductToCart(product, userId, 1);
+    }
+
+    @Override
+    public ShoppingCart addProductToCart(Product product, int userId, int quantity)
+    {
+        if (!carts.isEnabled())
+        {
+            return delegate.addProductToCart(product, userId, quantity);
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            delegate.addToCart(product.getProductId(), userId, quantity);
+
+            ShoppingCart cart = carts.update(userId, cached -> add(cached, product, quantity));
+            return cart != null ? cart : load(userId);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Swaps one product for another in the cart. Rare enough that the cart is simply read again next time.
+     */
+    @Override
+    public void updateProductInCart(Product product, int productId, int userId)
+    {
+        if (!carts.isEnabled())
+        {
+            delegate.updateProductInCart(product, productId, userId);
+            return;
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            delegate.updateProductInCart(product, productId, userId);
+        }
+        finally
+        {
+            carts.evict(userId);
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeProductInCart(int productId, int userId)
+    {
+        removeProductInCart(productId, userId, 1);
+    }
+
+    @Override
+    public void removeProductInCart(int productId, int userId, int quantity)
+    {
+        if (!carts.isEnabled())
+        {
+            delegate.removeProductInCart(productId, userId, quantity);
+            return;
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            delegate.removeProductInCart(productId, userId, quantity);
+            carts.update(userId, cached -> remove(cached, productId, quantity));
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the changes in place when every product being added is already in the cached cart.
+     * Otherwise the cart is read back from the database, since the cache has no row for the new product.
+     */
+    @Override
+    public ShoppingCart updateCart(int userId, List<CartItemChange> changes)
+    {
+        if (!carts.isEnabled())
+        {
+            return delegate.updateCart(userId, changes);
+        }
+
+        // summed the same way MySqlShoppingCartDao applies them
+        Map<Integer, Integer> netChanges = new LinkedHashMap<>();
+        for (CartItemChange change : changes)
+        {
+            netChanges.merge(change.getProductId(), change.getQuantityDelta(), Integer::sum);
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            ShoppingCart cached = carts.get(userId);
+            if (cached == null || !addsOnlyHeldProducts(cached, netChanges))
+            {
+                ShoppingCart cart = delegate.updateCart(userId, changes);
+                carts.put(userId, cart);
+                return cart;
+            }
+
+            delegate.applyChanges(userId, changes);
+
+            ShoppingCart cart = carts.update(userId, held -> netChanges.forEach((productId, delta) ->
+            {
+                if (delta > 0)
+                {
+                    ShoppingCartItem item = held.get(productId);
+                    item.setQuantity(item.getQuantity() + delta);
+                }
+                else if (delta < 0)
+                {
+                    remove(held, productId, -delta);
+                }
+            }));
+            return cart != null ? cart : load(userId);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public ShoppingCart emptyCart(int userId)
+    {
+        if (!carts.isEnabled())
+        {
+            return delegate.emptyCart(userId);
+        }
+
+        ReentrantLock lock = carts.lockFor(userId);
+        lock.lock();
+        try
+        {
+            delegate.deleteCart(userId);
+
+            ShoppingCart cart = new ShoppingCart();
+            carts.put(userId, cart);
+            return cart;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the cart from the database and caches it, for a write to a cart that was not cached.
+     */
+    private ShoppingCart load(int userId)
+    {
+        ShoppingCart cart = delegate.getByUserId(userId);
+        carts.put(userId, cart);
+        return cart;
+    }
+
+    private static boolean addsOnlyHeldProducts(ShoppingCart cart, Map<Integer, Integer> netChanges)
+    {
+        for (Map.Entry<Integer, Integer> change : netChanges.entrySet())
+        {
+            if (change.getValue() > 0 && !cart.contains(change.getKey()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void add(ShoppingCart cart, Product product, int quantity)
+    {
+        ShoppingCartItem item = cart.get(product.getProductId());
+        if (item != null)
+        {
+            item.setQuantity(item.getQuantity() + quantity);
+            return;
+        }
+
+        item = new ShoppingCartItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        cart.add(item);
+    }
+
+    /**
+     * Mirrors MySqlShoppingCartDao: the item is decremented if more than the quantity remains, otherwise removed.
+     */
+    private static void remove(ShoppingCart cart, int productId, int quantity)
+    {
+        ShoppingCartItem item = cart.get(productId);
+        if (item == null)
+        {
+            return;
+        }
+
+        if (item.getQuantity() > quantity)
+        {
+            item.setQuantity(item.getQuantity() - quantity);
+        }
+        else
+        {
+            cart.getItems().remove(productId);
+        }
+    }
+}
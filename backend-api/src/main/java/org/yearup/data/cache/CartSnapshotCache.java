@@ -0,0 +1,411 @@
+package org.yearup.data.cache;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps each user's ShoppingCart in memory, so GET /cart and the response to a cart change need no query.
+ * Carts are bounded by an estimate of the memory they use, cart.cache.max-bytes, rather than by count, since one
+ * cart can hold one item or hundreds. The least recently used carts go first when over the budget, and carts
+ * not used for cart.cache.idle-seconds are dropped as the cache is used.
+ * A product's carts are found through an index of product id to user ids, so a price change drops only the carts
+ * holding that product. Other product changes are copied into those carts in place.
+ * Callers change a cart while holding lockFor(userId), so a write and its change to the cached copy are never interleaved
+ * with another change to the same cart. The stripes are ReentrantLocks rather than monitors, since they are held across
+ * the cart's queries and a virtual thread blocked in a monitor keeps its carrier thread.
+ * The carts are only correct while this is the one process writing carts.
+ */
+@Component
+public class CartSnapshotCache implements ProductChangeListener, MeterBinder
+{
+    // rough sizes of the objects behind one cart and one item, with the strings of a product counted separately
+    private static final long CART_BYTES = 200;
+    private static final long ITEM_BYTES = 300;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long idleNanos;
+    private final LongSupplier clock;
+    private final ReentrantLock[] locks = new ReentrantLock[64];
+
+    private final LinkedHashMap<Integer, Entry> carts = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Integer, Set<Integer>> usersByProduct = new HashMap<>();
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param enabled is whether carts are cached at all. When off, every cart read goes to the database.
+     * @param maxBytes is the estimated memory all cached carts may take together.
+     * @param idleSeconds is how long a cart is kept after it was last read or changed.
+     */
+    @Autowired
+    public CartSnapshotCache(@Value("${cart.cache.enabled:true}") boolean enabled,
+                             @Value("${cart.cache.max-bytes:33554432}") long maxBytes,
+                             @Value("${cart.cache.idle-seconds:900}") long idleSeconds)
+    {
+        this(enabled, maxBytes, idleSeconds, System::nanoTime);
+    }
+
+    CartSnapshotCache(boolean enabled, long maxBytes, long idleSeconds, LongSupplier clock)
+    {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSeconds);
+        this.clock = clock;
+        for (int i = 0; i < locks.length; i++)
+        {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @return the lock to hold while writing the user's cart and changing its cached copy.
+     */
+    public ReentrantLock lockFor(int userId)
+    {
+        return locks[Math.floorMod(userId, locks.length)];
+    }
+
+    /**
+     * @return a copy of the user's cached cart, which the caller may hand out, or null when it is not cached.
+     */
+    public synchronized ShoppingCart get(int userId)
+    {
+        evictIdle();
+        Entry entry = carts.get(userId);
+        if (entry == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        entry.lastUsed = clock.getAsLong();
+        return copy(entry.cart);
+    }
+
+    /**
+     * Caches a cart as read from the database. The cache keeps its own copy.
+     */
+    public synchronized void put(int userId, ShoppingCart cart)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        remove(userId);
+        Entry entry = new Entry(userId, copy(cart));
+        entry.lastUsed = clock.getAsLong();
+        carts.put(userId, entry);
+        index(entry);
+        evictIdle();
+        evictOverBudget();
+    }
+
+    /**
+     * Applies a change the caller has just written to the database to the cached cart, if there is one.
+     * @return a copy of the changed cart, or null when the user's cart is not cached.
+     */
+    public synchronized ShoppingCart update(int userId, Consumer<ShoppingCart> change)
+    {
+        Entry entry = carts.get(userId);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        unindex(entry);
+        change.accept(entry.cart);
+        entry.lastUsed = clock.getAsLong();
+        index(entry);
+        evictOverBudget();
+        return copy(entry.cart);
+    }
+
+    /**
+     * Drops the user's cart, such as after a checkout emptied it outside the cart DAO.
+     */
+    public void evict(int userId)
+    {
+        ReentrantLock lock = lockFor(userId);
+        lock.lock();
+        try
+        {
+            synchronized (this)
+            {
+                remove(userId);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the carts holding the product when its price changed, since their totals are now wrong.
+     * Otherwise the carts' copy of the product is replaced in place.
+     */
+    @Override
+    public void productSaved(Product product)
+    {
+        for (int userId : usersOf(product.getProductId()))
+        {
+            ReentrantLock lock = lockFor(userId);
+            lock.lock();
+            try
+            {
+                synchronized (this)
+                {
+                    Entry entry = carts.get(userId);
+                    ShoppingCartItem item = entry == null ? null : entry.cart.get(product.getProductId());
+                    if (item == null)
+                    {
+                        continue;
+                    }
+
+                    if (!samePrice(item.getProduct().getPrice(), product))
+                    {
+                        remove(userId);
+                        evictions.incrementAndGet();
+                    }
+                    else
+                    {
+                        unindex(entry);
+                        item.setProduct(product);
+                        index(entry);
+                    }
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void productDeleted(int productId)
+    {
+        for (int userId : usersOf(productId))
+        {
+            evict(userId);
+        }
+    }
+
+    public synchronized int size()
+    {
+        return carts.size();
+    }
+
+    /**
+     * @return the estimated memory taken by the cached carts.
+     */
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        Gauge.builder("cart.cache.size", this, CartSnapshotCache::size)
+                .description("Carts held in memory")
+                .register(registry);
+        Gauge.builder("cart.cache.bytes", this, CartSnapshotCache::getBytes)
+                .description("Estimated memory taken by the cached carts")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("cart.cache.requests", hits, AtomicLong::get)
+                .description("Cart reads answered from memory")
+                .tag("result", "hit")
+                .register(registry);
+        Gauge.builder("cart.cache.requests", misses, AtomicLong::get)
+                .description("Cart reads answered from memory")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("cart.cache.evictions", evictions, AtomicLong::get)
+                .description("Carts dropped for being idle, over the memory budget, or holding a repriced product")
+                .register(registry);
+    }
+
+    /**
+     * @return an estimate of the memory the cart takes, counting its items and the strings of their products.
+     */
+    static long weigh(ShoppingCart cart)
+    {
+        long weight = CART_BYTES;
+        for (ShoppingCartItem item : cart.getItems().values())
+        {
+            Product product = item.getProduct();
+            weight += ITEM_BYTES + 2L * (length(product.getName()) + length(product.getDescription())
+                    + length(product.getSubCategory()) + length(product.getImageUrl()));
+        }
+        return weight;
+    }
+
+    /**
+     * @return a cart with its own map and items, sharing the products, which are never changed in place.
+     */
+    static ShoppingCart copy(ShoppingCart cart)
+    {
+        ShoppingCart copy = new ShoppingCart();
+        for (ShoppingCartItem item : cart.getItems().values())
+        {
+            ShoppingCartItem itemCopy = new ShoppingCartItem();
+            itemCopy.setProduct(item.getProduct());
+            itemCopy.setQuantity(item.getQuantity());
+            itemCopy.setDiscountPercent(item.getDiscountPercent());
+            copy.add(itemCopy);
+        }
+        return copy;
+    }
+
+    private synchronized Set<Integer> usersOf(int productId)
+    {
+        Set<Integer> users = usersByProduct.get(productId);
+        return users == null ? Set.of() : new HashSet<>(users);
+    }
+
+    private void remove(int userId)
+    {
+        Entry entry = carts.remove(userId);
+        if (entry != null)
+        {
+            unindex(entry);
+        }
+    }
+
+    /**
+     * Drops carts from the least recently used end while they have been idle too long.
+     * Carts are kept in order of use, so the sweep stops at the first one still in use.
+     */
+    private void evictIdle()
+    {
+        long now = clock.getAsLong();
+        Iterator<Entry> eldest = carts.values().iterator();
+        while (eldest.hasNext())
+        {
+            Entry entry = eldest.next();
+            if (now - entry.lastUsed < idleNanos)
+            {
+                return;
+            }
+            eldest.remove();
+            unindex(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void evictOverBudget()
+    {
+        Iterator<Entry> eldest = carts.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext())
+        {
+            Entry entry = eldest.next();
+            eldest.remove();
+            unindex(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void index(Entry entry)
+    {
+        entry.weight = weigh(entry.cart);
+        bytes += entry.weight;
+        for (int productId : entry.cart.getItems().keySet())
+        {
+            usersByProduct.computeIfAbsent(productId, key -> new HashSet<>()).add(entry.userId);
+        }
+    }
+
+    private void unindex(Entry entry)
+    {
+        bytes -= entry.weight;
+        for (int productId : entry.cart.getItems().keySet())
+        {
+            Set<Integer> users = usersByProduct.get(productId);
+            if (users != null)
+            {
+                users.remove(entry.userId);
+                if (users.isEmpty())
+                {
+                    usersByProduct.remove(productId);
+                }
+            }
+        }
+    }
+
+    private static boolean samePrice(java.math.BigDecimal cached, Product product)
+    {
+        if (cached == null || product.getPrice() == null)
+        {
+            return Objects.equals(cached, product.getPrice());
+        }
+        return cached.compareTo(product.getPrice()) == 0;
+    }
+
+    private static int length(String value)
+    {
+        return value == null ? 0 : value.length();
+    }
+
+    private static class Entry
+    {
+        private final int userId;
+        private final ShoppingCart cart;
+        private long weight;
+        private long lastUsed;
+
+        Entry(int userId, ShoppingCart cart)
+        {
+            this.userId = userId;
+            this.cart = cart;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.yearup.data.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.models.ProductPage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the hottest catalog responses as ready-made JSON bytes, both plain and gzipped.
+ * A snapshot is built on the first request after the catalog changes and then served as is,
+ * so a request for it runs neither Jackson nor a compressor.
+ * Snapshots are compared against CatalogVersion rather than evicted, so a write never has to know which snapshots it touched.
+ */
+@Component
+public class CatalogSnapshots
+{
+    private final CatalogVersion catalogVersion;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * @param catalogVersion is injected as a Bean, and moves whenever a product or category is written.
+     * @param objectMapper is injected as the Bean Spring MVC serializes responses with, so snapshots match other responses.
+     */
+    @Autowired
+    public CatalogSnapshots(CatalogVersion catalogVersion, ObjectMapper objectMapper)
+    {
+        this.catalogVersion = catalogVersion;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param key names the response, such as "categories" or "category:3".
+     * @param loader reads the response body from the catalog, asynchronously, so a stale snapshot is rebuilt without
+     * holding the request thread. When it yields a ProductPage, only its products are serialized and its cursor is kept alongside.
+     * @return the snapshot for the catalog as it is now, built from the loader if the catalog changed since the last one.
+     * The future is already complete when the snapshot is current.
+     */
+    public CompletableFuture<Snapshot> get(String key, Supplier<? extends CompletableFuture<?>> loader)
+    {
+        // read before loading, so a write that lands during the build leaves this snapshot stale rather than current
+        long version = catalogVersion.getVersion();
+
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.version == version)
+        {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        return loader.get().thenApply(body -> {
+            Snapshot built = build(version, body);
+            snapshots.put(key, built);
+            return built;
+        });
+    }
+
+    public int size()
+    {
+        return snapshots.size();
+    }
+
+    private Snapshot build(long version, Object body)
+    {
+        String next = null;
+        if (body instanceof ProductPage)
+        {
+            ProductPage page = (ProductPage) body;
+            next = page.getNext();
+            body = page.getProducts();
+        }
+
+        try
+        {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new Snapshot(version, json, gzip(json), next);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compresses at the highest level, since a snapshot is compressed once and sent many times.
+     */
+    static byte[] gzip(byte[] bytes)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)
+        {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        })
+        {
+            gzip.write(bytes);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One serialized response. The arrays are shared by every request that sends it, so they must never be written to.
+     */
+    public static class Snapshot
+    {
+        private final long version;
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String next;
+
+        Snapshot(long version, byte[] json, byte[] gzip, String next)
+        {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+            this.next = next;
+        }
+
+        public byte[] getJson()
+        {
+            return json;
+        }
+
+        public byte[] getGzip()
+        {
+            return gzip;
+        }
+
+        /**
+         * @return the cursor of the following page when the snapshot is a ProductPage with more pages, otherwise null.
+         */
+        public String getNext()
+        {
+            return next;
+        }
+    }
+}
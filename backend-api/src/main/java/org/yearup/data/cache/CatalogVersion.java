@@ -0,0 +1,65 @@
+package org.yearup.data.cache;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.models.Product;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter that moves on every product or category write, used as the validator for catalog responses.
+ * Product writes arrive as ProductChangeListener notifications, and category writes are reported by MySqlCategoryDao.
+ * Stock taken by checkouts and StockReservations flushes arrives the same way, passed on by CachingProductDao.
+ * The ETag includes the time this process started, so a restart never hands out an ETag an earlier process used.
+ */
+@Component
+public class CatalogVersion implements ProductChangeListener
+{
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    /**
+     * Marks the catalog as changed. Called after the write, so a response built from the old catalog never carries the new ETag.
+     */
+    public void bump()
+    {
+        lastModified = System.currentTimeMillis();
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void productSaved(Product product)
+    {
+        bump();
+    }
+
+    @Override
+    public void productDeleted(int productId)
+    {
+        bump();
+    }
+
+    public long getVersion()
+    {
+        return version.get();
+    }
+
+    /**
+     * @return a weak ETag, quoted, for the catalog as it is now.
+     * Weak, since the same catalog is sent both gzipped and plain, and because Tomcat never compresses a response
+     * that carries a strong ETag.
+     */
+    public String getETag()
+    {
+        return "W/\"" + epoch + "-" + version.get() + "\"";
+    }
+
+    /**
+     * @return when the catalog last changed, in epoch milliseconds.
+     */
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+}
@@ -0,0 +1,156 @@
+package org.yearup.data.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A size-bounded, thread-safe, least-recently-used cache.
+ * Keeps hit, miss and eviction counters so callers can report how well the cache is working.
+ * Null values are never stored, so a null from get() always means a miss.
+ * A value loaded from the database is put with putIfUnchanged and the stamp taken before the load, so a load that an
+ * invalidating write overtook is not cached with what the write changed.
+ * @param <K> the key type, which must implement equals and hashCode.
+ * @param <V> the cached value type.
+ */
+public class LruCache<K, V>
+{
+    private final int maxSize;
+    private final LinkedHashMap<K, V> entries;
+    // bumped by every invalidation, striped by key so a load only loses out to invalidations of keys in its stripe
+    private final long[] generations = new long[64];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public LruCache(int maxSize)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+
+        this.maxSize = maxSize;
+        // Access ordered, so the eldest entry is always the least recently used one.
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                if (size() > LruCache.this.maxSize)
+                {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized V get(K key)
+    {
+        V value = entries.get(key);
+
+        if (value == null)
+        {
+            misses.incrementAndGet();
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value)
+    {
+        if (value != null)
+        {
+            entries.put(key, value);
+        }
+    }
+
+    /**
+     * @return the stamp to take before loading the key's value, and pass to putIfUnchanged with it.
+     */
+    public synchronized long stamp(K key)
+    {
+        return generations[stripe(key)];
+    }
+
+    /**
+     * Caches a loaded value unless the key may have been invalidated since the stamp was taken.
+     * The value could then predate the write that invalidated it, so it is left for the next read to load again.
+     */
+    public synchronized void putIfUnchanged(K key, V value, long stamp)
+    {
+        if (generations[stripe(key)] == stamp)
+        {
+            put(key, value);
+        }
+    }
+
+    public synchronized void remove(K key)
+    {
+        entries.remove(key);
+        generations[stripe(key)]++;
+    }
+
+    /**
+     * Removes every entry whose key matches the predicate.
+     * Loads in progress for any key are not cached, since the predicate cannot be asked about keys not yet cached.
+     * @param predicate decides which keys are no longer valid.
+     */
+    public synchronized void removeIf(Predicate<K> predicate)
+    {
+        entries.keySet().removeIf(predicate);
+        invalidateAll();
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        invalidateAll();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    private int stripe(K key)
+    {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (generations.length - 1);
+    }
+
+    private void invalidateAll()
+    {
+        for (int i = 0; i < generations.length; i++)
+        {
+            generations[i]++;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package org.yearup.data.facets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.FacetCount;
+import org.yearup.models.PriceBucket;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts the products behind each choice in the storefront filter panel without asking MySQL.
+ * Holds only the filterable columns of the catalog, one slot per product: a bitset of the slots in each category and
+ * in each subcategory, and the prices in cents as a long array. A facet request ANDs the bitsets of the other filters
+ * together and counts, so its cost depends on the size of the catalog in words, not on GROUP BY queries.
+ * Built from MySqlProductDao at startup and kept current through the primary ProductDao's write notifications.
+ */
+@Component
+public class ProductFacetIndex implements ProductChangeListener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductFacetIndex.class);
+
+    private final MySqlProductDao source;
+    private final long[] bucketBoundaries;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Integer> slotsByProductId = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final BitSet live = new BitSet();
+    private int[] categoryIds = new int[1024];
+    private int[] subCategoryCodes = new int[1024];
+    private long[] cents = new long[1024];
+    private int slots;
+
+    private final Map<Integer, BitSet> categories = new TreeMap<>();
+    // Subcategories are matched ignoring case, as MySQL does, and shown as first spelled.
+    private final Map<String, Integer> subCategoryCodesByKey = new HashMap<>();
+    private final List<String> subCategoryNames = new ArrayList<>();
+    private final List<BitSet> subCategories = new ArrayList<>();
+
+    /**
+     * @param source is injected as a Bean, and is read once at startup.
+     * @param priceBuckets are the prices the price facet is split at, in ascending order.
+     */
+    @Autowired
+    public ProductFacetIndex(MySqlProductDao source, @Value("${catalog.facets.price-buckets:25,50,100,200}") BigDecimal[] priceBuckets)
+    {
+        this.source = source;
+        this.bucketBoundaries = new long[priceBuckets.length];
+        for (int i = 0; i < priceBuckets.length; i++)
+        {
+            bucketBoundaries[i] = toCents(priceBuckets[i], RoundingMode.HALF_UP);
+            if (i > 0 && bucketBoundaries[i] <= bucketBoundaries[i - 1])
+            {
+                throw new IllegalArgumentException("price buckets must be in ascending order");
+            }
+        }
+    }
+
+    /**
+     * Loads the whole catalog, streaming it from the database rather than loading it into a list first.
+     */
+    @PostConstruct
+    public void build()
+    {
+        long start = System.nanoTime();
+        source.streamSearch(null, null, null, null, this::put);
+        LOG.info("Indexed {} products for facets in {} ms", live.cardinality(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void productSaved(Product product)
+    {
+        put(product);
+    }
+
+    @Override
+    public void productDeleted(int productId)
+    {
+        remove(productId);
+    }
+
+    /**
+     * Adds the product, or replaces the version already held.
+     */
+    public void put(Product product)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer slot = slotsByProductId.get(product.getProductId());
+            if (slot == null)
+            {
+                slot = freeSlots.isEmpty() ? slots++ : freeSlots.pop();
+                ensureCapacity(slot + 1);
+                slotsByProductId.put(product.getProductId(), slot);
+            }
+            else
+            {
+                clearSlot(slot);
+            }
+
+            categoryIds[slot] = product.getCategoryId();
+            categories.computeIfAbsent(product.getCategoryId(), id -> new BitSet()).set(slot);
+
+            subCategoryCodes[slot] = subCategoryCode(product.getSubCategory(), true);
+            if (subCategoryCodes[slot] >= 0)
+            {
+                subCategories.get(subCategoryCodes[slot]).set(slot);
+            }
+
+            cents[slot] = toCents(product.getPrice(), RoundingMode.HALF_UP);
+            live.set(slot);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Integer slot = slotsByProductId.remove(productId);
+            if (slot != null)
+            {
+                clearSlot(slot);
+                live.clear(slot);
+                freeSlots.push(slot);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the products per category, subcategory and price bucket for the filters the user has chosen.
+     * Any filter may be null. Each facet ignores its own filter, so choosing a category still shows the other categories' counts.
+     */
+    public ProductFacets facets(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        lock.readLock().lock();
+        try
+        {
+            BitSet categoryFilter = categoryId == null ? null : categories.getOrDefault(categoryId, new BitSet());
+            BitSet subCategoryFilter = null;
+            if (subCategory != null)
+            {
+                int code = subCategoryCode(subCategory, false);
+                subCategoryFilter = code < 0 ? new BitSet() : subCategories.get(code);
+            }
+            BitSet priceFilter = minPrice == null && maxPrice == null ? null : priceRange(minPrice, maxPrice);
+
+            ProductFacets facets = new ProductFacets();
+            facets.setTotal(matching(categoryFilter, subCategoryFilter, priceFilter).cardinality());
+
+            BitSet withoutCategory = matching(subCategoryFilter, priceFilter);
+            for (Map.Entry<Integer, BitSet> category : categories.entrySet())
+            {
+                int count = countBoth(category.getValue(), withoutCategory);
+                if (count > 0)
+                {
+                    facets.getCategories().add(new FacetCount(String.valueOf(category.getKey()), count));
+                }
+            }
+
+            BitSet withoutSubCategory = matching(categoryFilter, priceFilter);
+            for (int code = 0; code < subCategories.size(); code++)
+            {
+                int count = countBoth(subCategories.get(code), withoutSubCategory);
+                if (count > 0)
+                {
+                    facets.getSubCategories().add(new FacetCount(subCategoryNames.get(code), count));
+                }
+            }
+            facets.getSubCategories().sort(Comparator.comparingInt(FacetCount::getCount).reversed().thenComparing(FacetCount::getValue));
+
+            BitSet withoutPrice = matching(categoryFilter, subCategoryFilter);
+            int[] bucketCounts = new int[bucketBoundaries.length + 1];
+            for (int slot = withoutPrice.nextSetBit(0); slot >= 0; slot = withoutPrice.nextSetBit(slot + 1))
+            {
+                int bucket = Arrays.binarySearch(bucketBoundaries, cents[slot]);
+                bucketCounts[bucket >= 0 ? bucket + 1 : -(bucket + 1)]++;
+            }
+            for (int i = 0; i < bucketCounts.length; i++)
+            {
+                BigDecimal min = i == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(bucketBoundaries[i - 1], 2);
+                BigDecimal max = i == bucketBoundaries.length ? null : BigDecimal.valueOf(bucketBoundaries[i], 2);
+                facets.getPrices().add(new PriceBucket(min, max, bucketCounts[i]));
+            }
+
+            return facets;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the live slots in every one of the filters, skipping the ones that are null.
+     */
+    private BitSet matching(BitSet... filters)
+    {
+        BitSet result = (BitSet) live.clone();
+        for (BitSet filter : filters)
+        {
+            if (filter != null)
+            {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static int countBoth(BitSet a, BitSet b)
+    {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private BitSet priceRange(BigDecimal minPrice, BigDecimal maxPrice)
+    {
+        long min = minPrice == null ? Long.MIN_VALUE : toCents(minPrice, RoundingMode.CEILING);
+        long max = maxPrice == null ? Long.MAX_VALUE : toCents(maxPrice, RoundingMode.FLOOR);
+
+        BitSet range = new BitSet(slots);
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1))
+        {
+            if (cents[slot] >= min && cents[slot] <= max)
+            {
+                range.set(slot);
+            }
+        }
+        return range;
+    }
+
+    /**
+     * @param create is whether an unseen subcategory gets a new code.
+     * @return the subcategory's code, or -1 when it is null or unseen.
+     */
+    private int subCategoryCode(String subCategory, boolean create)
+    {
+        if (subCategory == null)
+        {
+            return -1;
+        }
+
+        String key = subCategory.toLowerCase(Locale.ROOT);
+        Integer code = subCategoryCodesByKey.get(key);
+        if (code == null)
+        {
+            if (!create)
+            {
+                return -1;
+            }
+            code = subCategories.size();
+            subCategoryCodesByKey.put(key, code);
+            subCategoryNames.add(subCategory);
+            subCategories.add(new BitSet());
+        }
+        return code;
+    }
+
+    private void clearSlot(int slot)
+    {
+        BitSet category = categories.get(categoryIds[slot]);
+        category.clear(slot);
+        if (category.isEmpty())
+        {
+            categories.remove(categoryIds[slot]);
+        }
+        if (subCategoryCodes[slot] >= 0)
+        {
+            subCategories.get(subCategoryCodes[slot]).clear(slot);
+        }
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity > cents.length)
+        {
+            int grown = Math.max(capacity, cents.length * 2);
+            categoryIds = Arrays.copyOf(categoryIds, grown);
+            subCategoryCodes = Arrays.copyOf(subCategoryCodes, grown);
+            cents = Arrays.copyOf(cents, grown);
+        }
+    }
+
+    private static long toCents(BigDecimal price, RoundingMode rounding)
+    {
+        return price.movePointRight(2).setScale(0, rounding).longValueExact();
+    }
+}
@@ -1,9 +1,12 @@
 package org.yearup.data.mysql;
 
 import org.apache.ibatis.jdbc.SQL;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.parameters.P;
 import org.springframework.stereotype.Component;
 import org.yearup.data.CategoryDao;
+import org.yearup.data.ReadOnly;
+import org.yearup.data.cache.CatalogVersion;
 import org.yearup.models.Category;
 
 import javax.sql.DataSource;
@@ -20,8 +23,19 @@ import java.util.List;
  */
 @Component
 public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
+    private final CatalogVersion catalogVersion;
+
     public MySqlCategoryDao(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param catalogVersion is injected as a Bean, and is moved on after every write.
+     */
+    @Autowired
+    public MySqlCategoryDao(DataSource dataSource, CatalogVersion catalogVersion) {
         super(dataSource);
+        this.catalogVersion = catalogVersion;
     }
 
     /**
@@ -30,6 +44,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
      * @return a list of Category objects for each Category in the database.
      */
     @Override
+    @ReadOnly
     public List<Category> getAllCategories() {
         // Creates an empty ArrayList and stores it in a variable of type List.
         List<Category> categories = new ArrayList<Category>();
@@ -63,6 +78,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
      * @return the specified Category from the database if it exists, otherwise returns null.
      */
     @Override
+    @ReadOnly
     public Category getById(int categoryId) {
 
         String sql = "SELECT * FROM categories WHERE category_id = ?";
@@ -115,6 +131,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
             // Closes the ResultSet.
             generatedKey.close();
 
+            catalogChanged();
             return getById(primaryKey);
 
         } catch (SQLException e) {
@@ -149,6 +166,7 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
                     System.err.println("An error occurred when updating category.");
                     throw new RuntimeException();
                 }
+                catalogChanged();
             } catch (SQLException e) {
                 throw new RuntimeException(e);
             }
@@ -174,11 +192,21 @@ public class MySqlCategoryDao extends MySqlDaoBase implements CategoryDao {
                 System.err.println("An error occurred when deleting a category.");
                 throw new RuntimeException();
             }
+            catalogChanged();
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Tells CatalogVersion a category changed, so clients' cached catalog responses stop validating.
+     */
+    private void catalogChanged() {
+        if (catalogVersion != null) {
+            catalogVersion.bump();
+        }
+    }
+
     /**
      * Utilizes double brace initialization to map a ResultSet record and create a Category object.
      * @param row contains a record of a Category object from the database.
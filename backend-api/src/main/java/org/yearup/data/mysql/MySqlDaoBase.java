@@ -3,6 +3,7 @@ package org.yearup.data.mysql;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 
 public abstract class MySqlDaoBase
 {
@@ -17,4 +18,54 @@ public abstract class MySqlDaoBase
     {
         return dataSource.getConnection();
     }
+
+    /**
+     * Runs the work on the connection as one unit, so either all of its statements are kept or none are.
+     * Connections from the pool are in autocommit mode, so the work gets a transaction of its own, committed when it returns.
+     * On a connection already in a transaction, such as a test's, the work joins it and the caller commits;
+     * a failure then rolls back to a savepoint taken before the work, leaving the caller's earlier statements in place.
+     * @return whatever the work returns.
+     */
+    protected static <T> T inTransaction(Connection connection, SqlWork<T> work) throws SQLException
+    {
+        if (!connection.getAutoCommit())
+        {
+            Savepoint savepoint = connection.setSavepoint();
+            try
+            {
+                return work.run();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback(savepoint);
+                throw e;
+            }
+        }
+
+        connection.setAutoCommit(false);
+        try
+        {
+            T result = work.run();
+            connection.commit();
+            return result;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            connection.rollback();
+            throw e;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Statements run by inTransaction.
+     * @param <T> is what the work returns, or Void when it returns nothing.
+     */
+    protected interface SqlWork<T>
+    {
+        T run() throws SQLException;
+    }
 }
@@ -0,0 +1,310 @@
+package org.yearup.data.mysql;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.yearup.data.OrderDao;
+import org.yearup.data.OutOfStockException;
+import org.yearup.data.StockChangeListener;
+import org.yearup.data.cache.CartSnapshotCache;
+import org.yearup.data.stock.StockReservations;
+import org.yearup.data.stock.StockReservations.Reservation;
+import org.yearup.models.Order;
+import org.yearup.models.OrderLineItem;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Handles interacting with the Database's orders and order_line_items tables.
+ * Uses PreparedStatements to execute secure queries and updates.
+ * DataSource uses database information from the application.properties file.
+ * Implements methods outlined in the OrderDao interface.
+ * Acts as a Bean for the OrdersController.
+ */
+@Component
+public class MySqlOrderDao extends MySqlDaoBase implements OrderDao {
+
+    private final StockReservations stockReservations;
+    private final CartSnapshotCache carts;
+    private List<StockChangeListener> stockChangeListeners = new ArrayList<>();
+
+    /**
+     * Takes stock by updating products.stock directly inside each checkout.
+     */
+    public MySqlOrderDao(DataSource dataSource) {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param stockReservations takes stock in memory instead when it is enabled.
+     */
+    public MySqlOrderDao(DataSource dataSource, StockReservations stockReservations) {
+        this(dataSource, stockReservations, null);
+    }
+
+    /**
+     * @param stockReservations is injected as a Bean, and takes stock in memory instead when it is enabled.
+     * @param carts is injected as a Bean, and has the user's cached cart dropped once a checkout has cleared it.
+     */
+    @Autowired
+    public MySqlOrderDao(DataSource dataSource, StockReservations stockReservations, CartSnapshotCache carts) {
+        super(dataSource);
+        this.stockReservations = stockReservations;
+        this.carts = carts;
+    }
+
+    /**
+     * @param stockChangeListeners are injected as every StockChangeListener Bean, such as the product cache.
+     */
+    @Autowired(required = false)
+    public void setStockChangeListeners(List<StockChangeListener> stockChangeListeners) {
+        this.stockChangeListeners = stockChangeListeners;
+    }
+
+    /**
+     * Turns the user's ShoppingCart into an Order in one transaction.
+     * The cart is read and locked in product id order, so two checkouts sharing products always lock them in the same order.
+     * Stock is taken with one batch of guarded decrements that only succeed while enough is left,
+     * then the order and one batch of line items are inserted and the cart is cleared.
+     * When StockReservations is enabled, stock is reserved in memory instead, and products.stock is
+     * brought up to date by its next flush, so popular products' rows are never locked by a checkout.
+     * If any product is short, nothing is kept and the cart is left as it was.
+     * @param userId is obtained from the authenticated user making the request to the OrdersController.
+     * @return the new Order with its line items, or null if the user's cart is empty.
+     * @throws OutOfStockException if the cart asks for more of a product than is in stock.
+     */
+    @Override
+    public Order checkout(int userId) {
+
+        Order order;
+        boolean tookStock;
+
+        try (Connection connection = getConnection()) {
+            // Inside a caller's transaction nothing is committed until the caller commits, so stock is not reported then.
+            boolean ownsTransaction = connection.getAutoCommit();
+            List<Reservation> reservations = new ArrayList<>();
+            AtomicBoolean claimed = new AtomicBoolean();
+
+            try {
+                order = inTransaction(connection, () -> {
+                    Order placed = checkout(connection, userId, reservations);
+
+                    if (!reservations.isEmpty()) {
+                        if (!stockReservations.claim(reservations)) {
+                            throw new IllegalStateException("Stock reservations expired before the order was placed.");
+                        }
+                        claimed.set(true);
+                    }
+                    return placed;
+                });
+            } catch (SQLException | RuntimeException e) {
+                if (claimed.get()) {
+                    stockReservations.unclaim(reservations);
+                } else {
+                    reservations.forEach(stockReservations::release);
+                }
+                throw e;
+            }
+
+            if (claimed.get()) {
+                stockReservations.confirm(order.getOrderId(), reservations);
+            }
+
+            tookStock = order != null && !claimed.get() && ownsTransaction;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            // The cart was cleared here rather than through the cart DAO, so its cached copy is read again next time.
+            if (carts != null) {
+                carts.evict(userId);
+            }
+        }
+
+        // Stock was taken from products.stock directly, so cached copies of those products are now stale.
+        // Reported once the connection is back in the pool, since listeners read the products again.
+        // Reserved stock is reported by StockReservations once its flush commits instead.
+        if (tookStock) {
+            stockChanged(order.getLineItems());
+        }
+        return order;
+    }
+
+    /**
+     * Runs the checkout statements on a connection that is already inside a transaction.
+     * @param reservations collects the stock reserved in memory, if any, for the caller to claim or release.
+     */
+    private Order checkout(Connection connection, int userId, List<Reservation> reservations) throws SQLException {
+
+        List<OrderLineItem> lineItems = lockCart(connection, userId);
+        if (lineItems.isEmpty()) {
+            return null;
+        }
+
+        boolean reserving = stockReservations != null && stockReservations.isEnabled();
+        if (reserving) {
+            reserveStock(lineItems, reservations);
+        } else {
+            takeStock(connection, lineItems);
+        }
+
+        Order order = readShippingAddress(connection, userId);
+        order.setUserId(userId);
+        order.setDate(LocalDateTime.now());
+
+        String orderSql = "INSERT INTO orders (user_id, date, address, city, state, zip, shipping_amount, stock_flushed) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(orderSql, Statement.RETURN_GENERATED_KEYS)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(order.getDate()));
+            preparedStatement.setString(3, order.getAddress());
+            preparedStatement.setString(4, order.getCity());
+            preparedStatement.setString(5, order.getState());
+            preparedStatement.setString(6, order.getZip());
+            preparedStatement.setBigDecimal(7, order.getShippingAmount());
+            // Reserved stock is still owed to products.stock until StockReservations flushes this order.
+            preparedStatement.setBoolean(8, !reserving);
+
+            preparedStatement.executeUpdate();
+
+            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                keys.next();
+                order.setOrderId(keys.getInt(1));
+            }
+        }
+
+        String lineItemSql = "INSERT INTO order_line_items (order_id, product_id, sales_price, quantity, discount) " +
+                "VALUES (?, ?, ?, ?, ?);";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(lineItemSql)) {
+
+            for (OrderLineItem lineItem : lineItems) {
+                lineItem.setOrderId(order.getOrderId());
+
+                preparedStatement.setInt(1, lineItem.getOrderId());
+                preparedStatement.setInt(2, lineItem.getProductId());
+                preparedStatement.setBigDecimal(3, lineItem.getSalesPrice());
+                preparedStatement.setInt(4, lineItem.getQuantity());
+                preparedStatement.setBigDecimal(5, lineItem.getDiscount());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement("DELETE FROM shopping_cart WHERE user_id = ?;")) {
+
+            preparedStatement.setInt(1, userId);
+
+            preparedStatement.executeUpdate();
+        }
+
+        order.setLineItems(lineItems);
+        return order;
+    }
+
+    private void stockChanged(List<OrderLineItem> lineItems) {
+
+        List<Integer> productIds = new ArrayList<>(lineItems.size());
+        for (OrderLineItem lineItem : lineItems) {
+            productIds.add(lineItem.getProductId());
+        }
+        stockChangeListeners.forEach(listener -> listener.stockChanged(productIds));
+    }
+
+    /**
+     * Reads the user's cart at current prices, locking its records until the transaction ends.
+     * Prices are read in a subquery, so the products themselves are not locked by the read.
+     */
+    private List<OrderLineItem> lockCart(Connection connection, int userId) throws SQLException {
+
+        String sql = "SELECT product_id, quantity, (SELECT price FROM products p WHERE p.product_id = c.product_id) AS price " +
+                "FROM shopping_cart c WHERE user_id = ? ORDER BY product_id FOR UPDATE;";
+
+        List<OrderLineItem> lineItems = new ArrayList<>();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setInt(1, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    lineItems.add(new OrderLineItem(0, resultSet.getInt("product_id"), resultSet.getBigDecimal("price"),
+                            resultSet.getInt("quantity"), BigDecimal.ZERO));
+                }
+            }
+        }
+        return lineItems;
+    }
+
+    /**
+     * Reserves every product's quantity in memory.
+     * @throws OutOfStockException naming the first product that was short.
+     */
+    private void reserveStock(List<OrderLineItem> lineItems, List<Reservation> reservations) {
+
+        for (OrderLineItem lineItem : lineItems) {
+            Reservation reservation = stockReservations.reserve(lineItem.getProductId(), lineItem.getQuantity());
+            if (reservation == null) {
+                throw new OutOfStockException(lineItem.getProductId());
+            }
+            reservations.add(reservation);
+        }
+    }
+
+    /**
+     * Decrements every product's stock in one batch. A decrement that would go below zero matches no row.
+     * @throws OutOfStockException naming the first product that was short.
+     */
+    private void takeStock(Connection connection, List<OrderLineItem> lineItems) throws SQLException {
+
+        String sql = "UPDATE products SET stock = stock - ? WHERE product_id = ? AND stock >= ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            for (OrderLineItem lineItem : lineItems) {
+                preparedStatement.setInt(1, lineItem.getQuantity());
+                preparedStatement.setInt(2, lineItem.getProductId());
+                preparedStatement.setInt(3, lineItem.getQuantity());
+                preparedStatement.addBatch();
+            }
+
+            int[] rowsUpdated = preparedStatement.executeBatch();
+            for (int i = 0; i < rowsUpdated.length; i++) {
+                if (rowsUpdated[i] == 0) {
+                    throw new OutOfStockException(lineItems.get(i).getProductId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts the Order from the address on the user's profile, left blank if they have none.
+     */
+    private Order readShippingAddress(Connection connection, int userId) throws SQLException {
+
+        String sql = "SELECT address, city, state, zip FROM profiles WHERE user_id = ?;";
+
+        Order order = new Order();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setInt(1, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                if (resultSet.next()) {
+                    order.setAddress(resultSet.getString("address"));
+                    order.setCity(resultSet.getString("city"));
+                    order.setState(resultSet.getString("state"));
+                    order.setZip(resultSet.getString("zip"));
+                }
+            }
+        }
+        return order;
+    }
+}
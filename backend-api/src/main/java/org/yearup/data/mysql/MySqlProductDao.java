@@ -1,50 +1,171 @@
 package org.yearup.data.mysql;
 
+import org.apache.ibatis.jdbc.SQL;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.yearup.data.ProductCursor;
 import org.yearup.models.Product;
 import org.yearup.data.ProductDao;
+import org.yearup.data.ReadOnly;
+import org.yearup.data.Streaming;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+import org.yearup.data.stock.StockReservations;
 
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class MySqlProductDao extends MySqlDaoBase implements ProductDao
 {
+    private final StockReservations stockReservations;
+
     public MySqlProductDao(DataSource dataSource)
+    {
+        this(dataSource, null);
+    }
+
+    /**
+     * @param stockReservations is injected as a Bean, and is kept in step with stock changes made through update.
+     */
+    @Autowired
+    public MySqlProductDao(DataSource dataSource, StockReservations stockReservations)
     {
         super(dataSource);
+        this.stockReservations = stockReservations;
     }
 
     @Override
+    @ReadOnly
     public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        List<Object> parameters = new ArrayList<>();
+        SQL sql = filteredSelect(parameters, categoryId, minPrice, maxPrice, subCategory);
+
+        return query(sql.toString(), parameters);
+    }
+
+    @Override
+    @ReadOnly
+    public ProductPage search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                              ProductSort sort, String after, int limit)
+    {
+        if (limit < 1)
+        {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+
+        List<Object> parameters = new ArrayList<>();
+        SQL sql = filteredSelect(parameters, categoryId, minPrice, maxPrice, subCategory);
+
+        // Keyset predicate: continue strictly after the (sort value, product_id) of the previous page's last row,
+        // so MySQL seeks straight to the page instead of reading and discarding every row before it.
+        if (after != null)
+        {
+            ProductCursor cursor = ProductCursor.decode(after, sort);
+            switch (sort)
+            {
+                case NAME:
+                    sql.WHERE("(name > ? OR (name = ? AND product_id > ?))");
+                    parameters.add(cursor.getName());
+                    parameters.add(cursor.getName());
+                    parameters.add(cursor.getProductId());
+                    break;
+                case PRICE:
+                    sql.WHERE("(price > ? OR (price = ? AND product_id > ?))");
+                    parameters.add(cursor.getPrice());
+                    parameters.add(cursor.getPrice());
+                    parameters.add(cursor.getProductId());
+                    break;
+                default:
+                    sql.WHERE("product_id > ?");
+                    parameters.add(cursor.getProductId());
+            }
+        }
+
+        switch (sort)
+        {
+            case NAME:
+                sql.ORDER_BY("name, product_id");
+                break;
+            case PRICE:
+                sql.ORDER_BY("price, product_id");
+                break;
+            default:
+                sql.ORDER_BY("product_id");
+        }
+
+        // Reads one row past the page, which tells us whether a next page exists without a COUNT query.
+        parameters.add(limit + 1);
+        List<Product> products = query(sql.toString() + " LIMIT ?", parameters);
+
+        if (products.size() <= limit)
+        {
+            return new ProductPage(products, null);
+        }
+
+        products = new ArrayList<>(products.subList(0, limit));
+        String next = ProductCursor.after(sort, products.get(limit - 1)).encode();
+        return new ProductPage(products, next);
+    }
+
+    /**
+     * Hands each matching product to the consumer as its row arrives, ordered by product_id.
+     * No list is built, so memory use stays flat however many products match.
+     * The connection stays busy until the last row has been consumed, so it comes from the streaming pool.
+     */
+    @Override
+    @ReadOnly
+    @Streaming
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer)
+    {
+        List<Object> parameters = new ArrayList<>();
+        SQL sql = filteredSelect(parameters, categoryId, minPrice, maxPrice, subCategory).ORDER_BY("product_id");
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+        {
+            // Tells Connector/J to stream rows one at a time instead of buffering the whole result in memory.
+            statement.setFetchSize(Integer.MIN_VALUE);
+
+            for (int i = 0; i < parameters.size(); i++)
+            {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+
+            try (ResultSet row = statement.executeQuery())
+            {
+                while (row.next())
+                {
+                    consumer.accept(mapRow(row));
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    @ReadOnly
+    public List<Product> listByCategoryId(int categoryId)
     {
         List<Product> products = new ArrayList<>();
 
         String sql = "SELECT * FROM products " +
-                "WHERE (category_id = ? OR ? = -1) " +
-                "   AND (price >= ? OR ? = -1) " +
-                "   AND (price <= ? or ? = -1) " +
-                "   AND (subcategory = ? OR ? = '') ";
-
-        categoryId = categoryId == null ? -1 : categoryId;
-        minPrice = minPrice == null ? new BigDecimal("-1") : minPrice;
-        maxPrice = maxPrice == null ? new BigDecimal("-1") : maxPrice;
-        subCategory = subCategory == null ? "" : subCategory;
+                    " WHERE category_id = ? ";
 
         try (Connection connection = getConnection())
         {
             PreparedStatement statement = connection.prepareStatement(sql);
             statement.setInt(1, categoryId);
-            statement.setInt(2, categoryId);
-            statement.setBigDecimal(3, minPrice);
-            statement.setBigDecimal(4, minPrice);
-            statement.setBigDecimal(5, maxPrice);
-            statement.setBigDecimal(6, maxPrice);
-            statement.setString(7, subCategory);
-            statement.setString(8, subCategory);
 
             ResultSet row = statement.executeQuery();
 
@@ -65,17 +186,18 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
     }
 
     @Override
-    public List<Product> listByCategoryId(int categoryId)
+    @ReadOnly
+    public List<Product> listFeatured()
     {
         List<Product> products = new ArrayList<>();
 
         String sql = "SELECT * FROM products " +
-                    " WHERE category_id = ? ";
+                    " WHERE featured = 1 " +
+                    " ORDER BY product_id ";
 
         try (Connection connection = getConnection())
         {
             PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setInt(1, categoryId);
 
             ResultSet row = statement.executeQuery();
 
@@ -97,6 +219,14 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
 
 
     @Override
+    @ReadOnly
+    public ProductPage listByCategoryId(int categoryId, ProductSort sort, String after, int limit)
+    {
+        return search(categoryId, null, null, null, sort, after, limit);
+    }
+
+    @Override
+    @ReadOnly
     public Product getById(int productId)
     {
         String sql = "SELECT * FROM products WHERE product_id = ?";
@@ -162,40 +292,98 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
         return null;
     }
 
+    /**
+     * Inserts the products as one JDBC batch in a single transaction, so either all of them are stored or none are.
+     * With rewriteBatchedStatements on, Connector/J sends the batch as multi-row INSERTs rather than one round trip per row.
+     * The products are not read back; the ids come from the generated keys.
+     * @return the products as stored, with their ids, in the order given.
+     */
     @Override
-    public void update(int productId, Product product)
+    public List<Product> createAll(List<Product> products)
     {
-        String sql = "UPDATE products" +
-                " SET name = ? " +
-                "   , price = ? " +
-                "   , category_id = ? " +
-                "   , description = ? " +
-                "   , subcategory = ? " +
-                "   , image_url = ? " +
-                "   , stock = ? " +
-                "   , featured = ? " +
-                " WHERE product_id = ?;";
+        List<Product> created = new ArrayList<>(products.size());
+        if (products.isEmpty())
+        {
+            return created;
+        }
+
+        String sql = "INSERT INTO products(name, price, category_id, description, subcategory, image_url, stock, featured) " +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?);";
 
         try (Connection connection = getConnection())
         {
-            PreparedStatement statement = connection.prepareStatement(sql);
-            statement.setString(1, product.getName());
-            statement.setBigDecimal(2, product.getPrice());
-            statement.setInt(3, product.getCategoryId());
-            statement.setString(4, product.getDescription());
-            statement.setString(5, product.getSubCategory());
-            statement.setString(6, product.getImageUrl());
-            statement.setInt(7, product.getStock());
-            statement.setBoolean(8, product.isFeatured());
-            statement.setInt(9, productId);
-
-            statement.executeUpdate();
-            statement.close();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS))
+            {
+                for (Product product : products)
+                {
+                    statement.setString(1, product.getName());
+                    statement.setBigDecimal(2, product.getPrice());
+                    statement.setInt(3, product.getCategoryId());
+                    statement.setString(4, product.getDescription());
+                    statement.setString(5, product.getSubCategory());
+                    statement.setString(6, product.getImageUrl());
+                    statement.setInt(7, product.getStock());
+                    statement.setBoolean(8, product.isFeatured());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+
+                try (ResultSet generatedKeys = statement.getGeneratedKeys())
+                {
+                    for (Product product : products)
+                    {
+                        if (!generatedKeys.next())
+                        {
+                            throw new SQLException("Expected " + products.size() + " generated keys, got " + created.size());
+                        }
+                        created.add(new Product(generatedKeys.getInt(1), product.getName(), product.getPrice(),
+                                product.getCategoryId(), product.getDescription(), product.getSubCategory(),
+                                product.getStock(), product.isFeatured(), product.getImageUrl()));
+                    }
+                }
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(true);
+            }
         }
         catch (SQLException e)
         {
             throw new RuntimeException(e);
         }
+        return created;
+    }
+
+    /**
+     * Rewrites the product's row as sent.
+     * When StockReservations is enabled, its in-memory stock for the product moves by the same amount the row's stock did,
+     * so an admin's restock is available to checkouts right away.
+     */
+    @Override
+    public void update(int productId, Product product)
+    {
+        if (stockReservations != null && stockReservations.isEnabled())
+        {
+            stockReservations.adjust(productId, () -> updateRow(productId, product));
+        }
+        else
+        {
+            try
+            {
+                updateRow(productId, product);
+            }
+            catch (SQLException e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @Override
@@ -217,6 +405,126 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao
         {
             throw new RuntimeException(e);
         }
+
+        if (stockReservations != null)
+        {
+            stockReservations.forget(productId);
+        }
+    }
+
+    /**
+     * Reads the product's stock, locking the row, then rewrites the row in the same transaction.
+     * @return how much the row's stock changed by.
+     */
+    private int updateRow(int productId, Product product) throws SQLException
+    {
+        String sql = "UPDATE products" +
+                " SET name = ? " +
+                "   , price = ? " +
+                "   , category_id = ? " +
+                "   , description = ? " +
+                "   , subcategory = ? " +
+                "   , image_url = ? " +
+                "   , stock = ? " +
+                "   , featured = ? " +
+                " WHERE product_id = ?;";
+
+        try (Connection connection = getConnection())
+        {
+            return inTransaction(connection, () -> {
+                int previousStock = 0;
+                try (PreparedStatement statement = connection.prepareStatement("SELECT stock FROM products WHERE product_id = ? FOR UPDATE;"))
+                {
+                    statement.setInt(1, productId);
+                    try (ResultSet row = statement.executeQuery())
+                    {
+                        if (!row.next())
+                        {
+                            return 0;
+                        }
+                        previousStock = row.getInt("stock");
+                    }
+                }
+
+                try (PreparedStatement statement = connection.prepareStatement(sql))
+                {
+                    statement.setString(1, product.getName());
+                    statement.setBigDecimal(2, product.getPrice());
+                    statement.setInt(3, product.getCategoryId());
+                    statement.setString(4, product.getDescription());
+                    statement.setString(5, product.getSubCategory());
+                    statement.setString(6, product.getImageUrl());
+                    statement.setInt(7, product.getStock());
+                    statement.setBoolean(8, product.isFeatured());
+                    statement.setInt(9, productId);
+
+                    statement.executeUpdate();
+                }
+
+                return product.getStock() - previousStock;
+            });
+        }
+    }
+
+    /**
+     * Starts a SELECT on products with a predicate for each filter that was supplied.
+     * Leaving the missing filters out entirely, rather than matching them against a placeholder, lets MySQL pick an index.
+     * @param parameters receives the bind value for each predicate, in order.
+     */
+    private SQL filteredSelect(List<Object> parameters, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+    {
+        SQL sql = new SQL().SELECT("*").FROM("products");
+
+        if (categoryId != null)
+        {
+            sql.WHERE("category_id = ?");
+            parameters.add(categoryId);
+        }
+        if (subCategory != null && !subCategory.isEmpty())
+        {
+            sql.WHERE("subcategory = ?");
+            parameters.add(subCategory);
+        }
+        if (minPrice != null)
+        {
+            sql.WHERE("price >= ?");
+            parameters.add(minPrice);
+        }
+        if (maxPrice != null)
+        {
+            sql.WHERE("price <= ?");
+            parameters.add(maxPrice);
+        }
+        return sql;
+    }
+
+    private List<Product> query(String sql, List<Object> parameters)
+    {
+        List<Product> products = new ArrayList<>();
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            for (int i = 0; i < parameters.size(); i++)
+            {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+
+            try (ResultSet row = statement.executeQuery())
+            {
+                while (row.next())
+                {
+                    Product product = mapRow(row);
+                    products.add(product);
+                }
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+
+        return products;
     }
 
     protected static Product mapRow(ResultSet row) throws SQLException
@@ -1,10 +1,8 @@
 package org.yearup.data.mysql;
 
-import org.springframework.http.HttpStatus;
-import org.springframework.security.core.parameters.P;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.CartItemChange;
 import org.yearup.models.Product;
 import org.yearup.models.ShoppingCart;
 import org.yearup.models.ShoppingCartItem;
@@ -12,6 +10,9 @@ import org.yearup.models.ShoppingCartItem;
 import javax.sql.DataSource;
 import java.math.BigDecimal;
 import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Handles interacting with the Database's ShoppingCart table.
@@ -35,85 +36,62 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
     @Override
     public ShoppingCart getByUserId(int userId) {
 
-        String sql = "SELECT * FROM shopping_cart JOIN products USING (product_id) WHERE user_id = ?;";
-
-        ShoppingCart shoppingCart = new ShoppingCart();
-
-        try (Connection connection = getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-
-            preparedStatement.setInt(1, userId);
-
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                while (resultSet.next()) {
-
-                    ShoppingCartItem shoppingCartItem = new ShoppingCartItem();
-                    shoppingCartItem.setProduct(mapRow(resultSet));
-                    shoppingCartItem.setQuantity(resultSet.getInt("quantity"));
-
-                    shoppingCart.add(shoppingCartItem);
-                }
-                return shoppingCart;
-            }
+        try (Connection connection = getConnection()) {
+            return getByUserId(connection, userId);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Adds a ShoppingCartItem to the authenticated user's ShoppingCart within the database.
+     * Adds one of a Product to the authenticated user's ShoppingCart within the database.
      * @param product is obtained via the ShoppingCartController calling its ProductDao dependency
      * @param userId is obtained from the authenticated user making the request to ShoppingCartController.
      * @return the user's updated ShoppingCart from the database.
      */
     @Override
     public ShoppingCart addProductToCart(Product product, int userId) {
+        return addProductToCart(product, userId, 1);
+    }
 
-        String sql = "SELECT * FROM shopping_cart WHERE user_id = ? AND product_id = ?;";
-
-        try (Connection connection = getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-
-            preparedStatement.setInt(1, userId);
-            preparedStatement.setInt(2, product.getProductId());
-
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                // Checks if a record exists already before attempting to update it.
-                if (resultSet.next()) {
-                    sql = "UPDATE shopping_cart SET quantity = ? WHERE product_id = ? AND user_id = ?;";
-
-                    try (PreparedStatement quantityStatement = connection.prepareStatement(sql)) {
-
-                        quantityStatement.setInt(1, resultSet.getInt("quantity") + 1);
-                        quantityStatement.setInt(2, product.getProductId());
-                        quantityStatement.setInt(3, userId);
-
-                        int rowsUpdated = quantityStatement.executeUpdate();
-
-                        if (rowsUpdated != 1) {
-                            throw new RuntimeException();
-                        }
-                    }
+    /**
+     * Adds a quantity of a Product to the authenticated user's ShoppingCart within the database.
+     * Inserting the row and incrementing an existing one happen in a single atomic statement,
+     * so concurrent adds for the same user and product never lose an increment.
+     * @param product is obtained via the ShoppingCartController calling its ProductDao dependency
+     * @param userId is obtained from the authenticated user making the request to ShoppingCartController.
+     * @param quantity is how many to add, at least 1.
+     * @return the user's updated ShoppingCart from the database.
+     */
+    @Override
+    public ShoppingCart addProductToCart(Product product, int userId, int quantity) {
 
-                } else {
-                    // Adds a product to the shopping cart if none of its type exists already.
-                    sql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?);";
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
 
-                    try (PreparedStatement insertStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection()) {
+            addToCart(connection, product.getProductId(), userId, quantity);
+            // Reads the cart back on the same connection rather than checking out another one.
+            return getByUserId(connection, userId);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        insertStatement.setInt(1, userId);
-                        insertStatement.setInt(2, product.getProductId());
-                        insertStatement.setInt(3, 1);
+    /**
+     * Adds a quantity of a product to the user's cart without reading the cart back,
+     * for callers such as CachingShoppingCartDao that already hold the cart.
+     * @param quantity is how many to add, at least 1.
+     */
+    public void addToCart(int productId, int userId, int quantity) {
 
-                        int rowsUpdated = insertStatement.executeUpdate();
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
 
-                        if (rowsUpdated != 1) {
-                            throw new RuntimeException();
-                        }
-                    }
-                }
-            }
-            return getByUserId(userId);
+        try (Connection connection = getConnection()) {
+            addToCart(connection, productId, userId, quantity);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -148,52 +126,65 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
     }
 
     /**
-     * Removes a ShoppingCartItem from the user's ShoppingCart within the database.
+     * Removes one of a ShoppingCartItem from the user's ShoppingCart within the database.
      * If the ShoppingCartItem's quantity is more than 1, it updates the record's quantity instead of deleting the record.
      * @param productId is obtained via the request URL path from the ShoppingCartController.
      * @param userId is obtained via the authenticated user making the request.
      */
     @Override
     public void removeProductInCart(int productId, int userId) {
+        removeProductInCart(productId, userId, 1);
+    }
 
-        String sql = "SELECT * FROM shopping_cart WHERE product_id = ? AND user_id = ?;";
-
-        try (Connection connection = getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
-
-            preparedStatement.setInt(1, productId);
-            preparedStatement.setInt(2, userId);
-
-            try (ResultSet resultSet = preparedStatement.executeQuery()) {
-                if (resultSet.next() && resultSet.getInt("quantity") <= 1) {
-                    sql = "DELETE FROM shopping_cart WHERE product_id = ? AND user_id = ?;";
+    /**
+     * Removes a quantity of a ShoppingCartItem from the user's ShoppingCart within the database.
+     * The record is decremented when more than the quantity remains, and deleted otherwise.
+     * Both statements check the quantity themselves, so a concurrent add between them is never lost.
+     * @param productId is obtained via the request URL path from the ShoppingCartController.
+     * @param userId is obtained via the authenticated user making the request.
+     * @param quantity is how many to remove, at least 1.
+     */
+    @Override
+    public void removeProductInCart(int productId, int userId, int quantity) {
 
-                    try (PreparedStatement deleteStatement = connection.prepareStatement(sql)) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
 
-                        deleteStatement.setInt(1, productId);
-                        deleteStatement.setInt(2, userId);
+        try (Connection connection = getConnection()) {
+            removeProductInCart(connection, productId, userId, quantity);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        int rowsUpdated = deleteStatement.executeUpdate();
-                        if (rowsUpdated != 1) {
-                            throw new SQLException();
-                        }
-                    }
-                } else {
-                    sql = "UPDATE shopping_cart SET quantity = ? WHERE product_id = ? AND user_id = ?;";
+    /**
+     * Applies a batch of quantity changes to the user's ShoppingCart in one transaction, then reads the cart once.
+     * Changes to the same product are summed first, so the net change is what gets applied.
+     * Additions are sent as one JDBC batch of upserts and removals as one batch of decrements,
+     * followed by a single delete of every record that reached zero.
+     * @param userId is obtained from the authenticated user making the request.
+     * @param changes are obtained from the request body via the ShoppingCartController.
+     * @return the user's updated ShoppingCart.
+     */
+    @Override
+    public ShoppingCart updateCart(int userId, List<CartItemChange> changes) {
 
-                    try (PreparedStatement updateStatement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection()) {
+            applyChanges(connection, userId, changes);
+            return getByUserId(connection, userId);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                        updateStatement.setInt(1, resultSet.getInt("quantity") - 1);
-                        updateStatement.setInt(2, productId);
-                        updateStatement.setInt(3, userId);
+    /**
+     * Applies a batch of quantity changes as updateCart does, without reading the cart back.
+     */
+    public void applyChanges(int userId, List<CartItemChange> changes) {
 
-                        int rowsUpdated = updateStatement.executeUpdate();
-                        if (rowsUpdated != 1) {
-                            throw new SQLException();
-                        }
-                    }
-                }
-            }
+        try (Connection connection = getConnection()) {
+            applyChanges(connection, userId, changes);
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
@@ -207,19 +198,160 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
     @Override
     public ShoppingCart emptyCart(int userId) {
 
+        try (Connection connection = getConnection()) {
+            deleteCart(connection, userId);
+            return getByUserId(connection, userId);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Deletes every record of the user's cart without reading the cart back.
+     */
+    public void deleteCart(int userId) {
+
+        try (Connection connection = getConnection()) {
+            deleteCart(connection, userId);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the user's ShoppingCart on a connection the caller already holds.
+     */
+    private ShoppingCart getByUserId(Connection connection, int userId) throws SQLException {
+
+        String sql = "SELECT * FROM shopping_cart JOIN products USING (product_id) WHERE user_id = ?;";
+
+        ShoppingCart shoppingCart = new ShoppingCart();
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setInt(1, userId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+
+                    ShoppingCartItem shoppingCartItem = new ShoppingCartItem();
+                    shoppingCartItem.setProduct(mapRow(resultSet));
+                    shoppingCartItem.setQuantity(resultSet.getInt("quantity"));
+
+                    shoppingCart.add(shoppingCartItem);
+                }
+                return shoppingCart;
+            }
+        }
+    }
+
+    private void addToCart(Connection connection, int productId, int userId, int quantity) throws SQLException {
+
+        String sql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = quantity + ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, productId);
+            preparedStatement.setInt(3, quantity);
+            preparedStatement.setInt(4, quantity);
+
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private void applyChanges(Connection connection, int userId, List<CartItemChange> changes) throws SQLException {
+
+        Map<Integer, Integer> netChanges = new LinkedHashMap<>();
+        for (CartItemChange change : changes) {
+            netChanges.merge(change.getProductId(), change.getQuantityDelta(), Integer::sum);
+        }
+
+        String upsertSql = "INSERT INTO shopping_cart (user_id, product_id, quantity) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE quantity = quantity + ?;";
+        String decrementSql = "UPDATE shopping_cart SET quantity = quantity - ? WHERE user_id = ? AND product_id = ?;";
+        String deleteSql = "DELETE FROM shopping_cart WHERE user_id = ? AND quantity <= 0;";
+
+        inTransaction(connection, () -> {
+            try (PreparedStatement upsertStatement = connection.prepareStatement(upsertSql);
+                 PreparedStatement decrementStatement = connection.prepareStatement(decrementSql);
+                 PreparedStatement deleteStatement = connection.prepareStatement(deleteSql)) {
+
+                boolean anyRemoved = false;
+
+                for (Map.Entry<Integer, Integer> change : netChanges.entrySet()) {
+                    int productId = change.getKey();
+                    int delta = change.getValue();
+
+                    if (delta > 0) {
+                        upsertStatement.setInt(1, userId);
+                        upsertStatement.setInt(2, productId);
+                        upsertStatement.setInt(3, delta);
+                        upsertStatement.setInt(4, delta);
+                        upsertStatement.addBatch();
+                    } else if (delta < 0) {
+                        decrementStatement.setInt(1, -delta);
+                        decrementStatement.setInt(2, userId);
+                        decrementStatement.setInt(3, productId);
+                        decrementStatement.addBatch();
+                        anyRemoved = true;
+                    }
+                }
+
+                upsertStatement.executeBatch();
+
+                if (anyRemoved) {
+                    decrementStatement.executeBatch();
+
+                    deleteStatement.setInt(1, userId);
+                    deleteStatement.executeUpdate();
+                }
+            }
+            return null;
+        });
+    }
+
+    private void deleteCart(Connection connection, int userId) throws SQLException {
+
         String sql = "DELETE FROM shopping_cart WHERE user_id = ?;";
 
-        try (Connection connection = getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
 
             preparedStatement.setInt(1, userId);
 
             preparedStatement.executeUpdate();
+        }
+    }
 
-            return getByUserId(userId);
+    /**
+     * Decrements the record if more than the quantity remains, otherwise deletes it.
+     */
+    private void removeProductInCart(Connection connection, int productId, int userId, int quantity) throws SQLException {
 
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
+        String sql = "UPDATE shopping_cart SET quantity = quantity - ? WHERE user_id = ? AND product_id = ? AND quantity > ?;";
+
+        try (PreparedStatement updateStatement = connection.prepareStatement(sql)) {
+
+            updateStatement.setInt(1, quantity);
+            updateStatement.setInt(2, userId);
+            updateStatement.setInt(3, productId);
+            updateStatement.setInt(4, quantity);
+
+            if (updateStatement.executeUpdate() == 1) {
+                return;
+            }
+        }
+
+        sql = "DELETE FROM shopping_cart WHERE user_id = ? AND product_id = ? AND quantity <= ?;";
+
+        try (PreparedStatement deleteStatement = connection.prepareStatement(sql)) {
+
+            deleteStatement.setInt(1, userId);
+            deleteStatement.setInt(2, productId);
+            deleteStatement.setInt(3, quantity);
+
+            deleteStatement.executeUpdate();
         }
     }
 
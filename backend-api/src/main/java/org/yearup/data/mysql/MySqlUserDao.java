@@ -3,8 +3,9 @@ package org.yearup.data.mysql;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.yearup.data.UserDao;
+import org.yearup.data.UsernameTakenException;
 import org.yearup.models.User;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.sql.DataSource;
 import java.sql.*;
@@ -14,18 +15,28 @@ import java.util.List;
 @Component
 public class MySqlUserDao extends MySqlDaoBase implements UserDao
 {
+    private final PasswordEncoder passwordEncoder;
+
+    /**
+     * @param passwordEncoder is injected as a Bean from BoundedPasswordEncoder, so hashing runs off the request thread.
+     */
     @Autowired
-    public MySqlUserDao(DataSource dataSource)
+    public MySqlUserDao(DataSource dataSource, PasswordEncoder passwordEncoder)
     {
         super(dataSource);
+        this.passwordEncoder = passwordEncoder;
     }
 
 
+    /**
+     * Inserts the user and builds the result from the generated key, without reading the row back.
+     * @throws UsernameTakenException if the username is already in use.
+     */
     @Override
     public User create(User newUser)
     {
         String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, ?, ?)";
-        String hashedPassword = new BCryptPasswordEncoder().encode(newUser.getPassword());
+        String hashedPassword = passwordEncoder.encode(newUser.getPassword());
 
         try (Connection connection = getConnection())
         {
@@ -36,11 +47,13 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
 
             ps.executeUpdate();
 
-            User user = getByUserName(newUser.getUsername());
-            user.setPassword("");
-
-            return user;
-
+            ResultSet keys = ps.getGeneratedKeys();
+            keys.next();
+            return new User(keys.getInt(1), newUser.getUsername(), "", newUser.getRole());
+        }
+        catch (SQLIntegrityConstraintViolationException e)
+        {
+            throw new UsernameTakenException(newUser.getUsername());
         }
         catch (SQLException e)
         {
@@ -120,7 +133,7 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
         }
         catch (SQLException e)
         {
-            System.out.println(e);
+            throw new RuntimeException(e);
         }
 
         return null;
@@ -142,8 +155,20 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
     @Override
     public boolean exists(String username)
     {
-        User user = getByUserName(username);
-        return user != null;
+        String sql = "SELECT 1 FROM users WHERE username = ?";
+
+        try (Connection connection = getConnection())
+        {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setString(1, username);
+
+            ResultSet row = statement.executeQuery();
+            return row.next();
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
     }
 
     private User mapRow(ResultSet row) throws SQLException
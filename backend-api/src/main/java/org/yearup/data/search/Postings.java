@@ -0,0 +1,74 @@
+package org.yearup.data.search;
+
+import java.util.Arrays;
+
+/**
+ * The products containing one term, with the term's weight in each.
+ * Held as parallel arrays sorted by product id, so a lookup is a binary search and an entry costs eight bytes.
+ * Appending ids in ascending order, as the startup build does, never shifts the arrays.
+ * Not thread-safe; ProductSearchIndex guards every instance with its lock.
+ */
+class Postings
+{
+    private int[] productIds = new int[2];
+    private float[] weights = new float[2];
+    private int size;
+
+    int size()
+    {
+        return size;
+    }
+
+    int productId(int index)
+    {
+        return productIds[index];
+    }
+
+    float weight(int index)
+    {
+        return weights[index];
+    }
+
+    /**
+     * @return the term's weight in the product, or 0 if the product does not contain it.
+     */
+    float weightOf(int productId)
+    {
+        int index = Arrays.binarySearch(productIds, 0, size, productId);
+        return index < 0 ? 0f : weights[index];
+    }
+
+    void put(int productId, float weight)
+    {
+        int index = size == 0 || productIds[size - 1] < productId ? -(size + 1) : Arrays.binarySearch(productIds, 0, size, productId);
+        if (index >= 0)
+        {
+            weights[index] = weight;
+            return;
+        }
+
+        int insertAt = -(index + 1);
+        if (size == productIds.length)
+        {
+            productIds = Arrays.copyOf(productIds, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        System.arraycopy(productIds, insertAt, productIds, insertAt + 1, size - insertAt);
+        System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+        productIds[insertAt] = productId;
+        weights[insertAt] = weight;
+        size++;
+    }
+
+    void remove(int productId)
+    {
+        int index = Arrays.binarySearch(productIds, 0, size, productId);
+        if (index < 0)
+        {
+            return;
+        }
+        System.arraycopy(productIds, index + 1, productIds, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+    }
+}
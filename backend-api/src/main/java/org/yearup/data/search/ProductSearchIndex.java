@@ -0,0 +1,637 @@
+package org.yearup.data.search;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index over every product's name, subcategory and description, for ranked text search.
+ * Built from MySqlProductDao at startup and kept current through the primary ProductDao's write notifications.
+ * Each query word matches terms exactly, and also within one typo once it is four characters or longer.
+ * The last word also matches as a prefix, of at most MAX_PREFIX_TERMS terms, once it is two characters long and unless
+ * the query ends in a space, so results keep up while a user types.
+ * A product must match every word. It scores, per word, its best matching term's weight times that term's rarity,
+ * with name matches weighted above subcategory and description matches, and prefix and typo matches discounted.
+ */
+@Component
+public class ProductSearchIndex implements ProductChangeListener
+{
+    private static final Logger LOG = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float SUBCATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float TYPO_FACTOR = 0.5f;
+    private static final int MAX_PREFIX_TERMS = 64;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{IsAlphabetic}\\p{IsDigit}]+");
+    private static final String CURSOR_PREFIX = "RELEVANCE|";
+
+    private final MySqlProductDao source;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    // Every term with one character deleted, pointing back at the terms it came from, for finding one-typo matches.
+    private final Map<String, List<String>> deletions = new HashMap<>();
+
+    /**
+     * @param source is injected as a Bean, and is read once at startup.
+     * @param enabled is whether the index is built. When off, text search is unavailable.
+     */
+    @Autowired
+    public ProductSearchIndex(MySqlProductDao source, @Value("${catalog.search.enabled:true}") boolean enabled)
+    {
+        this.source = source;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Indexes the whole catalog, streaming it from the database rather than loading it into a list first.
+     */
+    @PostConstruct
+    public void build()
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        long start = System.nanoTime();
+        source.streamSearch(null, null, null, null, this::put);
+        LOG.info("Indexed {} products for search in {} ms", size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void productSaved(Product product)
+    {
+        if (enabled)
+        {
+            put(product);
+        }
+    }
+
+    @Override
+    public void productDeleted(int productId)
+    {
+        if (enabled)
+        {
+            remove(productId);
+        }
+    }
+
+    /**
+     * Adds the product, or replaces the version already indexed.
+     */
+    public void put(Product product)
+    {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getSubCategory(), SUBCATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        lock.writeLock().lock();
+        try
+        {
+            removeTerms(product.getProductId());
+
+            for (Map.Entry<String, Float> weight : weights.entrySet())
+            {
+                Postings postings = terms.get(weight.getKey());
+                if (postings == null)
+                {
+                    postings = new Postings();
+                    terms.put(weight.getKey(), postings);
+                    for (String deletion : deletionsOf(weight.getKey()))
+                    {
+                        deletions.computeIfAbsent(deletion, d -> new ArrayList<>(1)).add(weight.getKey());
+                    }
+                }
+                postings.put(product.getProductId(), weight.getValue());
+            }
+            documents.put(product.getProductId(), new Document(product, weights.keySet().toArray(new String[0])));
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            removeTerms(productId);
+            documents.remove(productId);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return documents.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds one page of the products matching the query and the filters, best match first.
+     * @param query is the text the user typed.
+     * @param after is the next cursor from the previous page, or null for the first page.
+     * @param limit is the page size, at least 1.
+     * @return the page, whose next cursor is null on the last page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public ProductPage search(String query, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                              String after, int limit)
+    {
+        if (limit < 1)
+        {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        int offset = decodeCursor(after);
+
+        List<String> words = tokenize(query);
+        if (words.isEmpty())
+        {
+            return new ProductPage(List.of(), null);
+        }
+        boolean lastWordIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        List<Hit> hits;
+        lock.readLock().lock();
+        try
+        {
+            List<List<Match>> matchesPerWord = new ArrayList<>(words.size());
+            for (int i = 0; i < words.size(); i++)
+            {
+                List<Match> matches = match(words.get(i), lastWordIsPrefix && i == words.size() - 1);
+                if (matches.isEmpty())
+                {
+                    return new ProductPage(List.of(), null);
+                }
+                matchesPerWord.add(matches);
+            }
+            // Starting from the rarest word keeps the candidate set, and every later lookup, as small as possible.
+            matchesPerWord.sort(Comparator.comparingLong(ProductSearchIndex::postingCount));
+
+            Candidates candidates = candidates(matchesPerWord.get(0), categoryId, minPrice, maxPrice, subCategory);
+
+            for (int w = 1; w < matchesPerWord.size() && candidates.size > 0; w++)
+            {
+                narrow(candidates, matchesPerWord.get(w));
+            }
+
+            hits = top(candidates, offset + limit + 1);
+            for (Hit hit : hits)
+            {
+                hit.product = documents.get(hit.productId).product;
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        List<Product> products = new ArrayList<>(limit);
+        for (int i = offset; i < Math.min(hits.size(), offset + limit); i++)
+        {
+            products.add(hits.get(i).product);
+        }
+        String next = hits.size() > offset + limit ? encodeCursor(offset + limit) : null;
+        return new ProductPage(products, next);
+    }
+
+    /**
+     * Splits text into lower case words, with accents removed, so "Café" and "cafe" index the same.
+     */
+    static List<String> tokenize(String text)
+    {
+        if (text == null || text.isBlank())
+        {
+            return List.of();
+        }
+
+        String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATORS.split(folded))
+        {
+            if (!word.isEmpty())
+            {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return true if b can be made from a with at most one insertion, deletion, substitution or swap of neighbours.
+     */
+    static boolean withinOneEdit(String a, String b)
+    {
+        int lengthDifference = a.length() - b.length();
+        if (Math.abs(lengthDifference) > 1)
+        {
+            return false;
+        }
+
+        int i = 0;
+        while (i < a.length() && i < b.length() && a.charAt(i) == b.charAt(i))
+        {
+            i++;
+        }
+        if (lengthDifference > 0)
+        {
+            return a.regionMatches(i + 1, b, i, b.length() - i);
+        }
+        if (lengthDifference < 0)
+        {
+            return b.regionMatches(i + 1, a, i, a.length() - i);
+        }
+        if (i >= a.length() - 1)
+        {
+            return true;
+        }
+        if (a.regionMatches(i + 1, b, i + 1, a.length() - i - 1))
+        {
+            return true;
+        }
+        return a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.regionMatches(i + 2, b, i + 2, a.length() - i - 2);
+    }
+
+    private List<Match> match(String word, boolean prefix)
+    {
+        List<Match> matches = new ArrayList<>();
+        Set<String> matched = new HashSet<>();
+
+        Postings exact = terms.get(word);
+        if (exact != null)
+        {
+            matches.add(new Match(exact, idf(exact)));
+            matched.add(word);
+        }
+
+        // a single character would expand to a large share of the vocabulary while matching almost nothing specific
+        if (prefix && word.length() >= MIN_PREFIX_LENGTH)
+        {
+            int prefixTerms = 0;
+            for (Map.Entry<String, Postings> term : terms.subMap(word, false, word + Character.MAX_VALUE, false).entrySet())
+            {
+                if (prefixTerms == MAX_PREFIX_TERMS)
+                {
+                    break;
+                }
+                matches.add(new Match(term.getValue(), PREFIX_FACTOR * idf(term.getValue())));
+                matched.add(term.getKey());
+                prefixTerms++;
+            }
+        }
+
+        if (word.length() >= MIN_TYPO_LENGTH)
+        {
+            Set<String> candidates = new HashSet<>(deletions.getOrDefault(word, List.of()));
+            for (String deletion : deletionsOf(word))
+            {
+                if (terms.containsKey(deletion))
+                {
+                    candidates.add(deletion);
+                }
+                candidates.addAll(deletions.getOrDefault(deletion, List.of()));
+            }
+
+            for (String candidate : candidates)
+            {
+                if (!matched.contains(candidate) && withinOneEdit(word, candidate))
+                {
+                    Postings postings = terms.get(candidate);
+                    matches.add(new Match(postings, TYPO_FACTOR * idf(postings)));
+                    matched.add(candidate);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private float idf(Postings postings)
+    {
+        return (float) Math.log(1 + (double) documents.size() / postings.size());
+    }
+
+    private static long postingCount(List<Match> matches)
+    {
+        long count = 0;
+        for (Match match : matches)
+        {
+            count += match.postings.size();
+        }
+        return count;
+    }
+
+    /**
+     * Collects the products matching the first word and passing the filters, each with its best score for that word.
+     * Each match's postings are sorted by product id, so a single match is already in order. Several are packed into
+     * longs of product id and score bits and sorted, which puts a product's entries next to each other with the best
+     * last, since the bits of positive floats sort like the floats.
+     */
+    private Candidates candidates(List<Match> matches, Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice,
+                                  String subCategory)
+    {
+        boolean filtered = categoryId != null || minPrice != null || maxPrice != null || subCategory != null;
+        long[] entries = new long[(int) postingCount(matches)];
+        int count = 0;
+        for (Match match : matches)
+        {
+            Postings postings = match.postings;
+            for (int i = 0; i < postings.size(); i++)
+            {
+                int productId = postings.productId(i);
+                if (!filtered || documents.get(productId).matches(categoryId, minPrice, maxPrice, subCategory))
+                {
+                    entries[count++] = (long) productId << 32 | Float.floatToRawIntBits(postings.weight(i) * match.factor);
+                }
+            }
+        }
+        if (matches.size() > 1)
+        {
+            Arrays.sort(entries, 0, count);
+        }
+
+        Candidates candidates = new Candidates(count);
+        for (int i = 0; i < count; i++)
+        {
+            if (i + 1 < count && entries[i + 1] >>> 32 == entries[i] >>> 32)
+            {
+                continue;
+            }
+            candidates.productIds[candidates.size] = (int) (entries[i] >>> 32);
+            candidates.scores[candidates.size] = Float.intBitsToFloat((int) entries[i]);
+            candidates.size++;
+        }
+        return candidates;
+    }
+
+    /**
+     * Keeps the candidates that also match a later word, adding their best score for it.
+     * Few candidates are looked up in each matching term's postings. When that would take more binary searches than the
+     * word has postings, as for a broad word or a prefix expanded to many terms, the word's own candidates are collected
+     * and merged with them instead, which costs one sort rather than a search per candidate and term.
+     */
+    private void narrow(Candidates candidates, List<Match> matches)
+    {
+        int kept = 0;
+        if ((long) candidates.size * matches.size() <= postingCount(matches))
+        {
+            for (int i = 0; i < candidates.size; i++)
+            {
+                float best = 0f;
+                for (Match match : matches)
+                {
+                    best = Math.max(best, match.postings.weightOf(candidates.productIds[i]) * match.factor);
+                }
+
+                if (best > 0f)
+                {
+                    candidates.productIds[kept] = candidates.productIds[i];
+                    candidates.scores[kept] = candidates.scores[i] + best;
+                    kept++;
+                }
+            }
+        }
+        else
+        {
+            Candidates word = candidates(matches, null, null, null, null);
+            int j = 0;
+            for (int i = 0; i < candidates.size && j < word.size; i++)
+            {
+                int productId = candidates.productIds[i];
+                while (j < word.size && word.productIds[j] < productId)
+                {
+                    j++;
+                }
+
+                if (j < word.size && word.productIds[j] == productId)
+                {
+                    candidates.productIds[kept] = productId;
+                    candidates.scores[kept] = candidates.scores[i] + word.scores[j];
+                    kept++;
+                }
+            }
+        }
+        candidates.size = kept;
+    }
+
+    /**
+     * @return the highest scoring hits, best first, with ties going to the lower product id.
+     */
+    private static List<Hit> top(Candidates candidates, int count)
+    {
+        Comparator<Hit> best = Comparator.comparingDouble((Hit hit) -> hit.score).reversed().thenComparingInt(hit -> hit.productId);
+        PriorityQueue<Hit> worstFirst = new PriorityQueue<>(count + 1, best.reversed());
+
+        for (int i = 0; i < candidates.size; i++)
+        {
+            int productId = candidates.productIds[i];
+            float score = candidates.scores[i];
+            if (worstFirst.size() < count)
+            {
+                worstFirst.add(new Hit(productId, score));
+                continue;
+            }
+
+            Hit worst = worstFirst.peek();
+            if (score > worst.score || (score == worst.score && productId < worst.productId))
+            {
+                worstFirst.poll();
+                worstFirst.add(new Hit(productId, score));
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(worstFirst);
+        hits.sort(best);
+        return hits;
+    }
+
+    private void removeTerms(int productId)
+    {
+        Document document = documents.get(productId);
+        if (document == null)
+        {
+            return;
+        }
+
+        for (String term : document.terms)
+        {
+            Postings postings = terms.get(term);
+            postings.remove(productId);
+            if (postings.size() == 0)
+            {
+                terms.remove(term);
+                for (String deletion : deletionsOf(term))
+                {
+                    List<String> sources = deletions.get(deletion);
+                    sources.remove(term);
+                    if (sources.isEmpty())
+                    {
+                        deletions.remove(deletion);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight)
+    {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : tokenize(text))
+        {
+            counts.merge(word, 1, Integer::sum);
+        }
+        // Repeats add less and less, so a description cannot outrank a name match by repeating a word.
+        counts.forEach((word, count) -> weights.merge(word, fieldWeight * (1f + (float) Math.log(count)), Float::sum));
+    }
+
+    private static Set<String> deletionsOf(String term)
+    {
+        if (term.length() < MIN_TYPO_LENGTH - 1)
+        {
+            return Set.of();
+        }
+
+        Set<String> variants = new HashSet<>();
+        for (int i = 0; i < term.length(); i++)
+        {
+            variants.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return variants;
+    }
+
+    private static String encodeCursor(int offset)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((CURSOR_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String token)
+    {
+        if (token == null)
+        {
+            return 0;
+        }
+
+        try
+        {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX))
+            {
+                throw new IllegalArgumentException("Cursor was not created for a text search.");
+            }
+            int offset = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+            if (offset < 0)
+            {
+                throw new IllegalArgumentException("Malformed cursor.");
+            }
+            return offset;
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Malformed cursor.", e);
+        }
+    }
+
+    private static final class Document
+    {
+        private final Product product;
+        private final String[] terms;
+
+        private Document(Product product, String[] terms)
+        {
+            this.product = product;
+            this.terms = terms;
+        }
+
+        private boolean matches(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+        {
+            return (categoryId == null || product.getCategoryId() == categoryId)
+                    && (minPrice == null || product.getPrice().compareTo(minPrice) >= 0)
+                    && (maxPrice == null || product.getPrice().compareTo(maxPrice) <= 0)
+                    && (subCategory == null || subCategory.equalsIgnoreCase(product.getSubCategory()));
+        }
+    }
+
+    private static final class Match
+    {
+        private final Postings postings;
+        private final float factor;
+
+        private Match(Postings postings, float factor)
+        {
+            this.postings = postings;
+            this.factor = factor;
+        }
+    }
+
+    /**
+     * The products still matching a query, as parallel arrays sorted by product id, with their scores so far.
+     * Primitive, so a broad word or short prefix matching much of the catalog boxes nothing per product.
+     */
+    private static final class Candidates
+    {
+        private final int[] productIds;
+        private final float[] scores;
+        private int size;
+
+        private Candidates(int capacity)
+        {
+            this.productIds = new int[capacity];
+            this.scores = new float[capacity];
+        }
+    }
+
+    private static final class Hit
+    {
+        private final int productId;
+        private final float score;
+        private Product product;
+
+        private Hit(int productId, float score)
+        {
+            this.productId = productId;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package org.yearup.data.stock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.yearup.data.StockChangeListener;
+import org.yearup.data.mysql.MySqlDaoBase;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps products' available stock in memory, so checkouts of a popular product never wait on its products.stock row.
+ * Each product has its own lock-free counter, loaded from products.stock the first time it is reserved.
+ * Loading a counter and adjusting products.stock take a lock striped by product id, so neither query runs
+ * inside the map's own locks, where it would stall every other product sharing the bin.
+ * A checkout reserves what it needs, claims the reservations just before its transaction commits, and then
+ * queues its order. Orders are placed with orders.stock_flushed = 0, and a background flush applies the net
+ * stock change of every queued order to products.stock in one batch, marking those orders flushed in the same transaction.
+ * On startup, any order still marked unflushed is applied the same way, so a restart never loses a stock change.
+ * Each flush reports the products it changed to the StockChangeListener Beans, so cached copies of them are refreshed.
+ * Reservations that are neither claimed nor released within the time to live go back to available stock.
+ * The counters are only correct while this is the one process taking stock, so run a single instance with it enabled.
+ */
+@Component
+public class StockReservations extends MySqlDaoBase
+{
+    private static final Logger LOG = LoggerFactory.getLogger(StockReservations.class);
+
+    private final boolean enabled;
+    private final long timeToLiveMillis;
+    private final long flushIntervalMillis;
+
+    private final Map<Integer, AtomicInteger> available = new ConcurrentHashMap<>();
+    private final Set<Reservation> outstanding = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<PendingOrder> pending = new ConcurrentLinkedQueue<>();
+    // a lock rather than synchronized, so a flush waiting on MySQL never pins a virtual thread's carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ReentrantLock[] productLocks = new ReentrantLock[64];
+    private ScheduledExecutorService scheduler;
+    private List<StockChangeListener> stockChangeListeners = new ArrayList<>();
+
+    /**
+     * @param enabled is whether checkouts take stock here. When off, they update products.stock directly.
+     * @param timeToLiveSeconds is how long a reservation is held before it goes back to available stock.
+     * @param flushIntervalMillis is how often queued orders are applied to products.stock.
+     */
+    @Autowired
+    public StockReservations(DataSource dataSource,
+                             @Value("${stock.reservations.enabled:true}") boolean enabled,
+                             @Value("${stock.reservations.ttl-seconds:30}") int timeToLiveSeconds,
+                             @Value("${stock.reservations.flush-interval-millis:500}") long flushIntervalMillis)
+    {
+        super(dataSource);
+        this.enabled = enabled;
+        this.timeToLiveMillis = TimeUnit.SECONDS.toMillis(timeToLiveSeconds);
+        this.flushIntervalMillis = flushIntervalMillis;
+        for (int i = 0; i < productLocks.length; i++)
+        {
+            productLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param stockChangeListeners are injected as every StockChangeListener Bean, such as the product cache.
+     * Resolved on first use, since the product cache itself depends on this Bean through MySqlProductDao.
+     */
+    @Autowired(required = false)
+    public void setStockChangeListeners(@Lazy List<StockChangeListener> stockChangeListeners)
+    {
+        this.stockChangeListeners = stockChangeListeners;
+    }
+
+    /**
+     * Applies anything a previous run left unflushed, then starts the background flush and expiry sweep.
+     * The reconciliation runs even when disabled, so turning reservations off never strands a stock change.
+     */
+    @PostConstruct
+    public void start()
+    {
+        reconcile();
+
+        if (enabled)
+        {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "stock-reservations");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::tick, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the background work and flushes whatever is still queued.
+     */
+    @PreDestroy
+    public void stop()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdown();
+        }
+        flush();
+    }
+
+    /**
+     * Takes a quantity of a product out of available stock.
+     * @return the Reservation, or null if the product does not exist or not enough is available.
+     */
+    public Reservation reserve(int productId, int quantity)
+    {
+        AtomicInteger counter = available.get(productId);
+        if (counter == null)
+        {
+            counter = loadCounter(productId);
+            if (counter == null)
+            {
+                return null;
+            }
+        }
+
+        int current;
+        do
+        {
+            current = counter.get();
+            if (current < quantity)
+            {
+                return null;
+            }
+        }
+        while (!counter.compareAndSet(current, current - quantity));
+
+        Reservation reservation = new Reservation(productId, quantity, counter, System.currentTimeMillis() + timeToLiveMillis);
+        outstanding.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Puts a reservation's quantity back into available stock, unless it was already claimed, released or expired.
+     */
+    public void release(Reservation reservation)
+    {
+        if (reservation.settled.compareAndSet(false, true))
+        {
+            reservation.counter.addAndGet(reservation.quantity);
+        }
+        outstanding.remove(reservation);
+    }
+
+    /**
+     * Claims every reservation for an order that is about to commit, so none of them can expire any more.
+     * @return true if all were claimed; otherwise none are, and the ones that had not expired are released.
+     */
+    public boolean claim(List<Reservation> reservations)
+    {
+        List<Reservation> claimed = new ArrayList<>(reservations.size());
+        for (Reservation reservation : reservations)
+        {
+            if (!reservation.settled.compareAndSet(false, true))
+            {
+                unclaim(claimed);
+                reservations.forEach(this::release);
+                return false;
+            }
+            claimed.add(reservation);
+        }
+        return true;
+    }
+
+    /**
+     * Puts claimed reservations back into available stock, for an order whose transaction failed to commit.
+     */
+    public void unclaim(List<Reservation> reservations)
+    {
+        for (Reservation reservation : reservations)
+        {
+            reservation.counter.addAndGet(reservation.quantity);
+            outstanding.remove(reservation);
+        }
+    }
+
+    /**
+     * Queues a committed order's claimed reservations to be applied to products.stock by the next flush.
+     */
+    public void confirm(int orderId, List<Reservation> reservations)
+    {
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (Reservation reservation : reservations)
+        {
+            quantities.merge(reservation.productId, reservation.quantity, Integer::sum);
+        }
+        pending.add(new PendingOrder(orderId, quantities));
+        outstanding.removeAll(reservations);
+    }
+
+    /**
+     * Runs a change to a product's stock column and moves its in-memory counter by the same amount.
+     * Loading the counter waits for the change, so the change is counted exactly once either way.
+     * @param change writes products.stock and returns how much it moved it by.
+     */
+    public void adjust(int productId, StockChange change)
+    {
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try
+        {
+            int delta = change.apply();
+            AtomicInteger counter = available.get(productId);
+            if (counter != null)
+            {
+                counter.addAndGet(delta);
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops a deleted product's counter.
+     */
+    public void forget(int productId)
+    {
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try
+        {
+            available.remove(productId);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies every queued order to products.stock in one transaction and marks those orders flushed.
+     * If the transaction fails, the orders stay queued for the next flush.
+     * Once it commits, the products it changed are reported to the StockChangeListener Beans.
+     */
+    public void flush()
+    {
+        Set<Integer> flushed = null;
+
+        flushLock.lock();
+        try
+        {
+            List<PendingOrder> orders = new ArrayList<>();
+            PendingOrder order;
+            while ((order = pending.poll()) != null)
+            {
+                orders.add(order);
+            }
+            if (orders.isEmpty())
+            {
+                return;
+            }
+
+            // Sorted by product id, so the flush locks rows in the same order as checkouts that update them directly.
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            for (PendingOrder pendingOrder : orders)
+            {
+                pendingOrder.quantities.forEach((productId, quantity) -> quantities.merge(productId, quantity, Integer::sum));
+            }
+
+            try (Connection connection = getConnection())
+            {
+                inTransaction(connection, () -> {
+                    takeStock(connection, quantities);
+
+                    String sql = "UPDATE orders SET stock_flushed = 1 WHERE order_id = ?;";
+                    try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+                    {
+                        for (PendingOrder pendingOrder : orders)
+                        {
+                            preparedStatement.setInt(1, pendingOrder.orderId);
+                            preparedStatement.addBatch();
+                        }
+                        preparedStatement.executeBatch();
+                    }
+                    return null;
+                });
+                flushed = quantities.keySet();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                pending.addAll(orders);
+                LOG.warn("Could not flush stock for {} orders, will retry", orders.size(), e);
+            }
+        }
+        finally
+        {
+            flushLock.unlock();
+        }
+
+        if (flushed != null)
+        {
+            stockChanged(flushed);
+        }
+    }
+
+    /**
+     * Applies the stock change of every order still marked unflushed, left behind by a stop before its flush.
+     * Not reported to the StockChangeListener Beans, since it runs on startup, before anything has cached a product.
+     */
+    public void reconcile()
+    {
+        String sql = "SELECT product_id, SUM(quantity) AS quantity FROM order_line_items JOIN orders USING (order_id) " +
+                "WHERE stock_flushed = 0 GROUP BY product_id;";
+
+        try (Connection connection = getConnection())
+        {
+            inTransaction(connection, () -> {
+                Map<Integer, Integer> quantities = new TreeMap<>();
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql);
+                     ResultSet resultSet = preparedStatement.executeQuery())
+                {
+                    while (resultSet.next())
+                    {
+                        quantities.put(resultSet.getInt("product_id"), resultSet.getInt("quantity"));
+                    }
+                }
+                if (quantities.isEmpty())
+                {
+                    return null;
+                }
+
+                takeStock(connection, quantities);
+
+                try (PreparedStatement preparedStatement = connection.prepareStatement("UPDATE orders SET stock_flushed = 1 WHERE stock_flushed = 0;"))
+                {
+                    preparedStatement.executeUpdate();
+                }
+                LOG.info("Reconciled unflushed stock for {} products", quantities.size());
+                return null;
+            });
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reports committed stock changes. A listener that fails is logged rather than thrown,
+     * since the change itself is already in products.stock and must not be flushed again.
+     */
+    private void stockChanged(Set<Integer> productIds)
+    {
+        try
+        {
+            stockChangeListeners.forEach(listener -> listener.stockChanged(productIds));
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Could not report stock changes for {} products", productIds.size(), e);
+        }
+    }
+
+    /**
+     * @return how many orders are waiting for the next flush.
+     */
+    public int getPendingOrders()
+    {
+        return pending.size();
+    }
+
+    private void tick()
+    {
+        try
+        {
+            releaseExpired();
+            flush();
+        }
+        catch (RuntimeException e)
+        {
+            LOG.warn("Stock reservation upkeep failed", e);
+        }
+    }
+
+    private void releaseExpired()
+    {
+        long now = System.currentTimeMillis();
+        for (Reservation reservation : outstanding)
+        {
+            if (reservation.expiresAt < now)
+            {
+                release(reservation);
+            }
+        }
+    }
+
+    /**
+     * Loads the product's counter unless another thread already has, under the product's lock rather than the map's.
+     * @return the counter, or null if the product does not exist.
+     */
+    private AtomicInteger loadCounter(int productId)
+    {
+        ReentrantLock lock = lockFor(productId);
+        lock.lock();
+        try
+        {
+            AtomicInteger counter = available.get(productId);
+            if (counter == null)
+            {
+                counter = load(productId);
+                if (counter != null)
+                {
+                    available.put(productId, counter);
+                }
+            }
+            return counter;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(int productId)
+    {
+        return productLocks[Math.floorMod(productId, productLocks.length)];
+    }
+
+    private AtomicInteger load(int productId)
+    {
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("SELECT stock FROM products WHERE product_id = ?;"))
+        {
+            preparedStatement.setInt(1, productId);
+
+            try (ResultSet resultSet = preparedStatement.executeQuery())
+            {
+                return resultSet.next() ? new AtomicInteger(resultSet.getInt("stock")) : null;
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void takeStock(Connection connection, Map<Integer, Integer> quantities) throws SQLException
+    {
+        String sql = "UPDATE products SET stock = stock - ? WHERE product_id = ?;";
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql))
+        {
+            for (Map.Entry<Integer, Integer> quantity : quantities.entrySet())
+            {
+                preparedStatement.setInt(1, quantity.getValue());
+                preparedStatement.setInt(2, quantity.getKey());
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * A change to products.stock run through adjust().
+     */
+    public interface StockChange
+    {
+        /**
+         * @return how much the change moved products.stock by.
+         */
+        int apply() throws SQLException;
+    }
+
+    /**
+     * A quantity of one product held out of available stock.
+     * Settled once it is claimed, released or expired, whichever happens first.
+     */
+    public static class Reservation
+    {
+        private final int productId;
+        private final int quantity;
+        private final AtomicInteger counter;
+        private final long expiresAt;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(int productId, int quantity, AtomicInteger counter, long expiresAt)
+        {
+            this.productId = productId;
+            this.quantity = quantity;
+            this.counter = counter;
+            this.expiresAt = expiresAt;
+        }
+
+        public int getProductId()
+        {
+            return productId;
+        }
+
+        public int getQuantity()
+        {
+            return quantity;
+        }
+    }
+
+    private static class PendingOrder
+    {
+        private final int orderId;
+        private final Map<Integer, Integer> quantities;
+
+        private PendingOrder(int orderId, Map<Integer, Integer> quantities)
+        {
+            this.orderId = orderId;
+            this.quantities = quantities;
+        }
+    }
+}
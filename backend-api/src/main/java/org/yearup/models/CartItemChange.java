@@ -0,0 +1,40 @@
+package org.yearup.models;
+
+/**
+ * One line of a batch cart update: how much to add to, or with a negative delta remove from, a product in the cart.
+ */
+public class CartItemChange
+{
+    private int productId;
+    private int quantityDelta;
+
+    public CartItemChange()
+    {
+    }
+
+    public CartItemChange(int productId, int quantityDelta)
+    {
+        this.productId = productId;
+        this.quantityDelta = quantityDelta;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public int getQuantityDelta()
+    {
+        return quantityDelta;
+    }
+
+    public void setQuantityDelta(int quantityDelta)
+    {
+        this.quantityDelta = quantityDelta;
+    }
+}
@@ -0,0 +1,77 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a bulk product import did: how many rows it read and stored, which rows it rejected, and how fast it ran.
+ */
+public class ImportResult
+{
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsFailed;
+    private List<ImportRowError> errors = new ArrayList<>();
+    private long millis;
+
+    public long getRowsRead()
+    {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead)
+    {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsImported()
+    {
+        return rowsImported;
+    }
+
+    public void setRowsImported(long rowsImported)
+    {
+        this.rowsImported = rowsImported;
+    }
+
+    public long getRowsFailed()
+    {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(long rowsFailed)
+    {
+        this.rowsFailed = rowsFailed;
+    }
+
+    /**
+     * @return the rejected rows, up to catalog.import.max-errors of them. rowsFailed counts them all.
+     */
+    public List<ImportRowError> getErrors()
+    {
+        return errors;
+    }
+
+    public void setErrors(List<ImportRowError> errors)
+    {
+        this.errors = errors;
+    }
+
+    public long getMillis()
+    {
+        return millis;
+    }
+
+    public void setMillis(long millis)
+    {
+        this.millis = millis;
+    }
+
+    /**
+     * @return the rows stored per second, over the whole import including parsing the body.
+     */
+    public double getRowsPerSecond()
+    {
+        return millis == 0 ? rowsImported * 1000.0 : rowsImported * 1000.0 / millis;
+    }
+}
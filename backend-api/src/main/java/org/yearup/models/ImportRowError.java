@@ -0,0 +1,43 @@
+package org.yearup.models;
+
+/**
+ * One row of a bulk import that was not stored, and why.
+ */
+public class ImportRowError
+{
+    private long line;
+    private String message;
+
+    public ImportRowError()
+    {
+    }
+
+    public ImportRowError(long line, String message)
+    {
+        this.line = line;
+        this.message = message;
+    }
+
+    /**
+     * @return the line of the request body the row starts on, counting from 1.
+     */
+    public long getLine()
+    {
+        return line;
+    }
+
+    public void setLine(long line)
+    {
+        this.line = line;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public void setMessage(String message)
+    {
+        this.message = message;
+    }
+}
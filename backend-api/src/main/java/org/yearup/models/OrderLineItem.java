@@ -0,0 +1,83 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+/**
+ * One product on an Order, priced at what it cost when the order was placed.
+ */
+public class OrderLineItem
+{
+    private int orderId;
+    private int productId;
+    private BigDecimal salesPrice = BigDecimal.ZERO;
+    private int quantity;
+    private BigDecimal discount = BigDecimal.ZERO;
+
+    public OrderLineItem()
+    {
+    }
+
+    public OrderLineItem(int orderId, int productId, BigDecimal salesPrice, int quantity, BigDecimal discount)
+    {
+        this.orderId = orderId;
+        this.productId = productId;
+        this.salesPrice = salesPrice;
+        this.quantity = quantity;
+        this.discount = discount;
+    }
+
+    public int getOrderId()
+    {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId)
+    {
+        this.orderId = orderId;
+    }
+
+    public int getProductId()
+    {
+        return productId;
+    }
+
+    public void setProductId(int productId)
+    {
+        this.productId = productId;
+    }
+
+    public BigDecimal getSalesPrice()
+    {
+        return salesPrice;
+    }
+
+    public void setSalesPrice(BigDecimal salesPrice)
+    {
+        this.salesPrice = salesPrice;
+    }
+
+    public int getQuantity()
+    {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity)
+    {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getDiscount()
+    {
+        return discount;
+    }
+
+    public void setDiscount(BigDecimal discount)
+    {
+        this.discount = discount;
+    }
+
+    public BigDecimal getLineTotal()
+    {
+        return salesPrice.multiply(new BigDecimal(quantity)).subtract(discount);
+    }
+}
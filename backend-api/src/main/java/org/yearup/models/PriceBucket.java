@@ -0,0 +1,54 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+/**
+ * How many products are priced from min up to, but not including, max. The last bucket has no max.
+ */
+public class PriceBucket
+{
+    private BigDecimal min;
+    private BigDecimal max;
+    private int count;
+
+    public PriceBucket()
+    {
+    }
+
+    public PriceBucket(BigDecimal min, BigDecimal max, int count)
+    {
+        this.min = min;
+        this.max = max;
+        this.count = count;
+    }
+
+    public BigDecimal getMin()
+    {
+        return min;
+    }
+
+    public void setMin(BigDecimal min)
+    {
+        this.min = min;
+    }
+
+    public BigDecimal getMax()
+    {
+        return max;
+    }
+
+    public void setMax(BigDecimal max)
+    {
+        this.max = max;
+    }
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+}
@@ -0,0 +1,57 @@
+package org.yearup.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The counts behind the storefront filter panel for one set of filters.
+ * Each facet is counted with every filter applied except its own, so the panel shows what choosing
+ * a different value would return instead of only the value already chosen.
+ */
+public class ProductFacets
+{
+    private int total;
+    private List<FacetCount> categories = new ArrayList<>();
+    private List<FacetCount> subCategories = new ArrayList<>();
+    private List<PriceBucket> prices = new ArrayList<>();
+
+    public int getTotal()
+    {
+        return total;
+    }
+
+    public void setTotal(int total)
+    {
+        this.total = total;
+    }
+
+    public List<FacetCount> getCategories()
+    {
+        return categories;
+    }
+
+    public void setCategories(List<FacetCount> categories)
+    {
+        this.categories = categories;
+    }
+
+    public List<FacetCount> getSubCategories()
+    {
+        return subCategories;
+    }
+
+    public void setSubCategories(List<FacetCount> subCategories)
+    {
+        this.subCategories = subCategories;
+    }
+
+    public List<PriceBucket> getPrices()
+    {
+        return prices;
+    }
+
+    public void setPrices(List<PriceBucket> prices)
+    {
+        this.prices = prices;
+    }
+}
@@ -0,0 +1,34 @@
+package org.yearup.models;
+
+import java.util.List;
+
+/**
+ * One page of a product listing.
+ * The next cursor is passed back as the "after" parameter to fetch the following page, and is null on the last page.
+ */
+public class ProductPage
+{
+    private final List<Product> products;
+    private final String next;
+
+    public ProductPage(List<Product> products, String next)
+    {
+        this.products = products;
+        this.next = next;
+    }
+
+    public List<Product> getProducts()
+    {
+        return products;
+    }
+
+    public String getNext()
+    {
+        return next;
+    }
+
+    public boolean hasNext()
+    {
+        return next != null;
+    }
+}
@@ -0,0 +1,26 @@
+package org.yearup.models;
+
+/**
+ * The orders a page of products can be listed in.
+ * Every order falls back to the product id for ties, so paging through it is stable.
+ */
+public enum ProductSort
+{
+    ID,
+    NAME,
+    PRICE;
+
+    /**
+     * @param value is the sort request parameter, such as "price". Case is ignored.
+     * @return the matching sort, or ID when no value was supplied.
+     * @throws IllegalArgumentException if the value is not a supported sort.
+     */
+    public static ProductSort fromParameter(String value)
+    {
+        if (value == null || value.isBlank())
+        {
+            return ID;
+        }
+        return ProductSort.valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,30 @@
+package org.yearup.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * A Spring Security user that also carries the database id of the account.
+ * Installed as the principal both at login and when a JWT is accepted, so request handlers
+ * can identify the user without looking them up by name.
+ */
+public class AuthenticatedUser extends User {
+
+    private static final long serialVersionUID = 4811259623421733468L;
+
+    private final int id;
+
+    public AuthenticatedUser(int id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    /**
+     * @return the user's id, or 0 when it is not known, such as for tokens issued before ids were added to them.
+     */
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,171 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and checks passwords with BCrypt on a small pool of its own, sized to the core count.
+ * Request threads hand the work over and wait, so a burst of logins can keep at most that many cores busy
+ * and catalog requests still get CPU. When the queue is full, or a request has waited too long,
+ * a PasswordHashingBusyException is thrown and the caller answers 503 instead of piling up behind it.
+ */
+@Component
+public class BoundedPasswordEncoder implements PasswordEncoder, MeterBinder {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMillis;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Timer queueWaitTimer;
+    private Counter rejectedCounter;
+
+    /**
+     * @param threads is the number of passwords hashed at once, or 0 for one per available core.
+     * @param queueCapacity is the number of requests allowed to wait for a hashing thread.
+     * @param maxWaitMillis is how long a request waits for its hash before giving up.
+     */
+    @Autowired
+    public BoundedPasswordEncoder(@Value("${auth.hashing.threads:0}") int threads,
+                                  @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                  @Value("${auth.hashing.max-wait-millis:2000}") long maxWaitMillis) {
+        this(new BCryptPasswordEncoder(), threads, queueCapacity, maxWaitMillis);
+    }
+
+    BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, long maxWaitMillis) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.delegate = delegate;
+        this.maxWaitMillis = maxWaitMillis;
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * @return the number of requests waiting for a hashing thread.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> work, Timer timer) {
+        long submitted = System.nanoTime();
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                if (queueWaitTimer != null) {
+                    queueWaitTimer.record(started - submitted, TimeUnit.NANOSECONDS);
+                }
+                try {
+                    return work.call();
+                } finally {
+                    if (timer != null) {
+                        timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reject();
+            throw new PasswordHashingBusyException("Too many logins at once, try again shortly.");
+        }
+
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // only stops it if it never started; a hash that is already running finishes and is discarded
+            future.cancel(false);
+            reject();
+            throw new PasswordHashingBusyException("Too many logins at once, try again shortly.");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for a password hash.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void reject() {
+        if (rejectedCounter != null) {
+            rejectedCounter.increment();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        encodeTimer = Timer.builder("auth.password.hash")
+                .description("Time spent hashing a password")
+                .tag("operation", "encode")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        matchesTimer = Timer.builder("auth.password.hash")
+                .description("Time spent hashing a password")
+                .tag("operation", "matches")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        queueWaitTimer = Timer.builder("auth.password.queue.wait")
+                .description("Time a password hash waited for a hashing thread")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+        rejectedCounter = Counter.builder("auth.password.rejected")
+                .description("Password hashes turned away because the hashing pool was saturated")
+                .register(registry);
+        Gauge.builder("auth.password.queue.depth", this, BoundedPasswordEncoder::getQueueDepth)
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes running now")
+                .register(registry);
+    }
+}
@@ -0,0 +1,18 @@
+package org.yearup.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when BoundedPasswordEncoder cannot take on another password hash.
+ * Not an AuthenticationException, so Spring Security never reports it as bad credentials.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 3815227041669243125L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,52 @@
+package org.yearup.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.UserDao;
+import org.yearup.data.cache.LruCache;
+
+import java.security.Principal;
+
+/**
+ * Finds the database id of the user making a request.
+ * The id normally comes straight from the JWT claims on the principal, which costs no query.
+ * Tokens without the claim fall back to a lookup by username, remembered in a bounded cache since ids never change.
+ */
+@Component
+public class UserIdResolver {
+
+    private final UserDao userDao;
+    private final LruCache<String, Integer> idsByUsername;
+
+    public UserIdResolver(UserDao userDao, @Value("${security.user-id-cache.max-size:10000}") int maxSize) {
+        this.userDao = userDao;
+        this.idsByUsername = new LruCache<>(maxSize);
+    }
+
+    /**
+     * @param principal is obtained from an authenticated user making the request.
+     * @return the user's id.
+     * @throws ResponseStatusException with 401 if no such user exists.
+     */
+    public int resolve(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && user.getId() > 0) {
+            return user.getId();
+        }
+
+        String username = principal.getName();
+        Integer id = idsByUsername.get(username);
+        if (id == null) {
+            id = userDao.getIdByUsername(username);
+            if (id < 1) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+            }
+            idsByUsername.put(username, id);
+        }
+        return id;
+    }
+}
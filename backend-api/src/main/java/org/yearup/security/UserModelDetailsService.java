@@ -2,13 +2,17 @@ package org.yearup.security;
 
 
 import org.yearup.data.UserDao;
+import org.yearup.data.cache.LruCache;
 import org.yearup.models.User;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
@@ -16,6 +20,8 @@ import java.util.stream.Collectors;
 
 /**
  * Authenticate a user from the database.
+ * Users are kept in memory for a short time, so a user logging in again soon after runs no query.
+ * Anything that changes a user's password or role must call evict, or the old values are used until the entry expires.
  */
 @Component("userDetailsService")
 public class UserModelDetailsService implements UserDetailsService {
@@ -23,28 +29,80 @@ public class UserModelDetailsService implements UserDetailsService {
     private final Logger log = LoggerFactory.getLogger(UserModelDetailsService.class);
 
     private final UserDao userDao;
+    private final LruCache<String, CachedUser> users;
+    private final long ttlMillis;
 
     public UserModelDetailsService(UserDao userDao) {
+        this(userDao, 0, 1);
+    }
+
+    /**
+     * @param ttlSeconds is how long a user is kept in memory, or 0 to always read the database.
+     * @param maxUsers is the number of users kept in memory.
+     */
+    @Autowired
+    public UserModelDetailsService(UserDao userDao,
+                                   @Value("${auth.user-cache.ttl-seconds:60}") long ttlSeconds,
+                                   @Value("${auth.user-cache.max-size:10000}") int maxUsers) {
         this.userDao = userDao;
+        this.users = new LruCache<>(maxUsers);
+        this.ttlMillis = ttlSeconds * 1000;
     }
 
     @Override
     public UserDetails loadUserByUsername(final String login) {
         log.debug("Authenticating user '{}'", login);
         String lowercaseLogin = login.toLowerCase();
-        return createSpringSecurityUser(lowercaseLogin, userDao.getByUserName(lowercaseLogin));
+
+        CachedUser cached = users.get(lowercaseLogin);
+        User user;
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+            user = cached.user;
+        } else {
+            user = userDao.getByUserName(lowercaseLogin);
+            if (user == null) {
+                throw new UsernameNotFoundException("User " + lowercaseLogin + " was not found");
+            }
+            if (ttlMillis > 0) {
+                users.put(lowercaseLogin, new CachedUser(user, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        // a new UserDetails every time, since Spring Security erases the password of the one it is given after login
+        return createSpringSecurityUser(lowercaseLogin, user);
+    }
+
+    /**
+     * Drops a user from memory, so the next login reads their row again.
+     */
+    public void evict(String username) {
+        users.remove(username.toLowerCase());
     }
 
-    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
+    public void evictAll() {
+        users.clear();
+    }
+
+    private AuthenticatedUser createSpringSecurityUser(String lowercaseLogin, User user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
         List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
                 .map(authority -> new SimpleGrantedAuthority(authority.getName()))
                 .collect(Collectors.toList());
-        return new org.springframework.security.core.userdetails.User(user.getUsername(),
+        return new AuthenticatedUser(user.getId(),
+                user.getUsername(),
                 user.getPassword(),
                 grantedAuthorities);
     }
-}
 
+    static class CachedUser {
+        private final User user;
+        private final long expiresAt;
+
+        CachedUser(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
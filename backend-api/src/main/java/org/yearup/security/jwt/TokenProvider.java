@@ -1,6 +1,8 @@
 package org.yearup.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -13,11 +15,16 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.yearup.data.cache.LruCache;
+import org.yearup.security.AuthenticatedUser;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
 import java.util.stream.Collectors;
@@ -29,19 +36,25 @@ public class TokenProvider implements InitializingBean
     private final Logger logger = LoggerFactory.getLogger(TokenProvider.class);
 
     private static final String AUTHORITIES_KEY = "auth";
+    private static final String USER_ID_KEY = "uid";
 
     private final String secret;
     private final long tokenTimeout;
+    private final LruCache<String, VerifiedToken> verifiedTokens;
 
     private Key key;
+    // Immutable once built, so one parser is shared by every request thread.
+    private JwtParser parser;
 
 
     public TokenProvider(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds)
+            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds,
+            @Value("${jwt.cache.max-size:10000}") int cacheMaxSize)
     {
         this.secret = secret;
         this.tokenTimeout = tokenTimeoutSeconds * 1000;
+        this.verifiedTokens = new LruCache<>(cacheMaxSize);
     }
 
     @Override
@@ -49,6 +62,7 @@ public class TokenProvider implements InitializingBean
     {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
     public String createToken(Authentication authentication, boolean rememberMe)
@@ -60,37 +74,74 @@ public class TokenProvider implements InitializingBean
         long now = (new Date()).getTime();
         Date expirationDate = new Date(now + this.tokenTimeout);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(authentication.getName())
-                .claim(AUTHORITIES_KEY, authorities)
+                .claim(AUTHORITIES_KEY, authorities);
+
+        // Carrying the id lets request handlers identify the user without a users query.
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user)
+        {
+            builder.claim(USER_ID_KEY, user.getId());
+        }
+
+        return builder
                 .signWith(key, SignatureAlgorithm.HS512)
                 .setExpiration(expirationDate)
                 .compact();
     }
 
-    public Authentication getAuthentication(String token)
+    /**
+     * Verifies the token and builds its Authentication in a single parse.
+     * Verified tokens are remembered until they expire, so later requests carrying the same token
+     * skip the signature check and claim parsing entirely.
+     * @return the token's Authentication, or null if the token is invalid or expired.
+     */
+    public Authentication authenticate(String token)
     {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String tokenHash = hash(token);
 
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+        VerifiedToken verified = verifiedTokens.get(tokenHash);
+        if (verified != null)
+        {
+            if (verified.expiresAt > System.currentTimeMillis())
+            {
+                return verified.authentication;
+            }
+            verifiedTokens.remove(tokenHash);
+        }
 
-        User principal = new User(claims.getSubject(), "", authorities);
+        Claims claims;
+        try
+        {
+            claims = parser.parseClaimsJws(token).getBody();
+        }
+        catch (Exception e)
+        {
+            logger.info("Token Invalid.");
+            logger.trace("Token Invalid trace: {}.", e.toString());
+            return null;
+        }
 
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        Authentication authentication = toAuthentication(claims, token);
+        if (claims.getExpiration() != null)
+        {
+            verifiedTokens.put(tokenHash, new VerifiedToken(authentication, claims.getExpiration().getTime()));
+        }
+        return authentication;
+    }
+
+    public Authentication getAuthentication(String token)
+    {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+
+        return toAuthentication(claims, token);
     }
 
     public boolean validateToken(String authToken)
     {
         try
         {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
+            parser.parseClaimsJws(authToken);
             return true;
         }
         catch (Exception e)
@@ -100,4 +151,53 @@ public class TokenProvider implements InitializingBean
         }
         return false;
     }
+
+    private Authentication toAuthentication(Claims claims, String token)
+    {
+        Collection<? extends GrantedAuthority> authorities =
+                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toList());
+
+        Integer userId = claims.get(USER_ID_KEY, Integer.class);
+        AuthenticatedUser principal = new AuthenticatedUser(userId == null ? 0 : userId, claims.getSubject(), "", authorities);
+
+        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+    }
+
+    /**
+     * Keys the cache by a fixed-size digest rather than by the token itself.
+     */
+    private static String hash(String token)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public LruCache<String, VerifiedToken> getVerifiedTokens()
+    {
+        return verifiedTokens;
+    }
+
+    /**
+     * An Authentication built from a token whose signature has already been checked, and when that token expires.
+     */
+    public static final class VerifiedToken
+    {
+        private final Authentication authentication;
+        private final long expiresAt;
+
+        private VerifiedToken(Authentication authentication, long expiresAt)
+        {
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
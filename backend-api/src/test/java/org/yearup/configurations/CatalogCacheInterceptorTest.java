@@ -0,0 +1,115 @@
+package org.yearup.configurations;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.yearup.data.cache.CachingProductDao;
+import org.yearup.data.cache.CatalogVersion;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import javax.servlet.DispatcherType;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogCacheInterceptorTest
+{
+    private CatalogVersion catalogVersion;
+    private CatalogCacheInterceptor interceptor;
+
+    @BeforeEach
+    public void setup()
+    {
+        catalogVersion = new CatalogVersion();
+        interceptor = new CatalogCacheInterceptor(catalogVersion, "public, max-age=60");
+    }
+
+    @Test
+    public void preHandle_shouldSetValidators_onFirstRequest()
+    {
+        // arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean proceed = interceptor.preHandle(new MockHttpServletRequest("GET", "/products"), response, null);
+
+        // assert
+        assertTrue(proceed);
+        assertEquals(catalogVersion.getETag(), response.getHeader("ETag"));
+        assertEquals("public, max-age=60", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void preHandle_shouldAnswer304_whileTheCatalogIsUnchanged()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.addHeader("If-None-Match", catalogVersion.getETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(proceed, "Because the controller should not run.");
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void preHandle_shouldProceed_afterACatalogWrite()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/categories");
+        request.addHeader("If-None-Match", catalogVersion.getETag());
+        catalogVersion.bump();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(proceed);
+    }
+
+    @Test
+    public void preHandle_shouldProceed_afterACheckoutTakesStock()
+    {
+        // arrange
+        CachingProductDao productDao = new CachingProductDao(new MySqlProductDao(null)
+        {
+            @Override
+            public Product getById(int productId)
+            {
+                return new Product(productId, "Controller", new BigDecimal("59.99"), 1, "", "Xbox", 9, false, "");
+            }
+        }, 10, 10);
+        productDao.setListeners(List.of(catalogVersion));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+        request.addHeader("If-None-Match", catalogVersion.getETag());
+
+        // act
+        productDao.stockChanged(List.of(1));
+        boolean proceed = interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(proceed, "Because the product's stock is part of the cached response.");
+    }
+
+    @Test
+    public void preHandle_shouldLeaveTheValidators_onAnAsyncDispatch()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        request.setDispatcherType(DispatcherType.ASYNC);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // assert
+        assertTrue(proceed);
+        assertNull(response.getHeader("ETag"), "Because the first dispatch set it before the data was read.");
+    }
+}
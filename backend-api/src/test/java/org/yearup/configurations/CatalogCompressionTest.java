@@ -0,0 +1,95 @@
+package org.yearup.configurations;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.util.unit.DataSize;
+import org.yearup.data.cache.CatalogVersion;
+import org.yearup.models.Product;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs a catalog GET through a real Tomcat with the same server.compression settings as application.properties,
+ * since whether a response is compressed is decided by the connector, after the interceptor has set the ETag.
+ */
+class CatalogCompressionTest
+{
+    private WebServer server;
+
+    @BeforeEach
+    public void setup()
+    {
+        CatalogCacheInterceptor interceptor = new CatalogCacheInterceptor(new CatalogVersion(), "public, max-age=60");
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 50; i++)
+        {
+            products.add(new Product(i, "Controller " + i, new BigDecimal("59.99"), 1, "A wireless controller.", "Xbox", 10, false, ""));
+        }
+
+        HttpServlet productsServlet = new HttpServlet()
+        {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException
+            {
+                if (interceptor.preHandle(request, response, null))
+                {
+                    response.setContentType("application/json");
+                    objectMapper.writeValue(response.getOutputStream(), products);
+                }
+            }
+        };
+
+        Compression compression = new Compression();
+        compression.setEnabled(true);
+        compression.setMimeTypes(new String[] { "application/json", "application/x-ndjson", "text/csv" });
+        compression.setMinResponseSize(DataSize.ofBytes(1024));
+
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        factory.setCompression(compression);
+        server = factory.getWebServer(context -> context.addServlet("products", productsServlet).addMapping("/products"));
+        server.start();
+    }
+
+    @AfterEach
+    public void cleanup()
+    {
+        server.stop();
+    }
+
+    @Test
+    public void getProducts_shouldBeGzipped_whenTheClientAcceptsIt() throws Exception
+    {
+        // arrange
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/products"))
+                .header("Accept-Encoding", "gzip")
+                .build();
+
+        // act
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        // assert
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null),
+                "Because Tomcat skips compression for a response with a strong ETag.");
+        assertTrue(response.headers().firstValue("ETag").orElse("").startsWith("W/"));
+    }
+}
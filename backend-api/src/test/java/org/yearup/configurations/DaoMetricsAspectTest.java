@@ -0,0 +1,49 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.yearup.data.CategoryDao;
+import org.yearup.data.mysql.MySqlCategoryDao;
+import org.yearup.models.Category;
+import org.yearup.models.ProductPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaoMetricsAspectTest
+{
+    @Test
+    public void time_shouldCountFailures_byDaoAndMethod()
+    {
+        // arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new MySqlCategoryDao(null));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new DaoMetricsAspect(registry));
+        CategoryDao dao = factory.getProxy();
+
+        // act
+        assertThrows(RuntimeException.class, dao::getAllCategories, "Because there is no database to connect to.");
+
+        // assert
+        assertEquals(1, registry.get("dao.calls")
+                .tags("dao", "MySqlCategoryDao", "method", "getAllCategories", "outcome", "error")
+                .timer().count());
+        assertTrue(registry.find("dao.rows").summaries().isEmpty(), "Because a failed read returned no rows.");
+    }
+
+    @Test
+    public void rows_shouldCountWhatAReadReturned()
+    {
+        // act
+        // assert
+        assertEquals(2, DaoMetricsAspect.rows(List.class, List.of(new Category(), new Category())));
+        assertEquals(0, DaoMetricsAspect.rows(ProductPage.class, new ProductPage(new ArrayList<>(), null)));
+        assertEquals(1, DaoMetricsAspect.rows(Category.class, new Category()));
+        assertEquals(0, DaoMetricsAspect.rows(Category.class, null), "Because nothing was found.");
+        assertEquals(-1, DaoMetricsAspect.rows(void.class, null), "Because writes return no rows.");
+    }
+}
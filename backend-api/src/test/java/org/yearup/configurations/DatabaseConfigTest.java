@@ -0,0 +1,71 @@
+package org.yearup.configurations;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.yearup.configuration.TestDatabaseConfig;
+import org.yearup.data.mysql.MySqlProductDao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = TestDatabaseConfig.class)
+class DatabaseConfigTest
+{
+    @Value("${datasource.url}")
+    private String serverUrl;
+
+    @Value("${datasource.testdb}")
+    private String testDb;
+
+    @Value("${datasource.username}")
+    private String username;
+
+    @Value("${datasource.password}")
+    private String password;
+
+    @Test
+    public void streamingPool_shouldKeepAStream_heldLongerThanTheLeakDetectionTimeout() throws Exception
+    {
+        // arrange
+        DataSourcePoolProperties pool = new DataSourcePoolProperties();
+        pool.setLeakDetectionTimeoutSeconds(1);
+        pool.setTimeBetweenEvictionRunsMillis(100);
+        String url = String.format("%s/%s", serverUrl, testDb);
+        AtomicInteger streamed = new AtomicInteger();
+
+        try (InstrumentedDataSource streaming = DatabaseConfig.streamingPool(url, username, password, pool, null))
+        {
+            MySqlProductDao dao = new MySqlProductDao(streaming);
+            int expected = dao.search(null, null, null, null).size();
+
+            // act
+            dao.streamSearch(null, null, null, null, product -> {
+                if (streamed.getAndIncrement() == 0)
+                {
+                    // holds the connection mid-stream past the timeout and a few eviction runs
+                    sleep(3000);
+                }
+            });
+
+            // assert
+            assertEquals(expected, streamed.get(), "Because the stream should not be closed as a leaked connection.");
+        }
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
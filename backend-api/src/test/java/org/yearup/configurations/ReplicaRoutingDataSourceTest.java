@@ -0,0 +1,154 @@
+package org.yearup.configurations;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest
+{
+    /**
+     * Counts the connections asked of it, and hands out none, since routing is decided before a connection is opened.
+     */
+    private static class CountingDataSource extends AbstractDataSource
+    {
+        private final boolean down;
+        private int connections;
+
+        CountingDataSource(boolean down)
+        {
+            this.down = down;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException
+        {
+            connections++;
+            if (down)
+            {
+                throw new SQLException("Communications link failure");
+            }
+            return null;
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException
+        {
+            return getConnection();
+        }
+    }
+
+    private static void readOnly(ReplicaRoutingDataSource dataSource) throws SQLException
+    {
+        boolean previous = ReplicaRoutingDataSource.enterReadOnly();
+        try
+        {
+            dataSource.getConnection();
+        }
+        finally
+        {
+            ReplicaRoutingDataSource.exitReadOnly(previous);
+        }
+    }
+
+    @Test
+    public void getConnection_shouldTakeReplicasInTurn_forReadOnlyCalls() throws SQLException
+    {
+        // arrange
+        CountingDataSource primary = new CountingDataSource(false);
+        CountingDataSource first = new CountingDataSource(false);
+        CountingDataSource second = new CountingDataSource(false);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.<DataSource>of(first, second), 2000);
+
+        // act
+        for (int i = 0; i < 4; i++)
+        {
+            readOnly(dataSource);
+        }
+        dataSource.getConnection();
+
+        // assert
+        assertEquals(2, first.connections);
+        assertEquals(2, second.connections);
+        assertEquals(1, primary.connections, "Because a call that is not read-only must use the primary.");
+    }
+
+    @Test
+    public void getConnection_shouldUseThePrimary_rightAfterACatalogWrite() throws SQLException
+    {
+        // arrange
+        CountingDataSource primary = new CountingDataSource(false);
+        CountingDataSource replica = new CountingDataSource(false);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.<DataSource>of(replica), 60000);
+
+        // act
+        dataSource.catalogWritten();
+        readOnly(dataSource);
+
+        // assert
+        assertEquals(1, primary.connections, "Because the replica may not have the write yet.");
+        assertEquals(0, replica.connections);
+    }
+
+    @Test
+    public void getConnection_shouldFallBackToThePrimary_whenAReplicaIsDown() throws SQLException
+    {
+        // arrange
+        CountingDataSource primary = new CountingDataSource(false);
+        CountingDataSource replica = new CountingDataSource(true);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.<DataSource>of(replica), 2000);
+
+        // act
+        readOnly(dataSource);
+
+        // assert
+        assertEquals(1, replica.connections);
+        assertEquals(1, primary.connections);
+    }
+
+    @Test
+    public void getConnection_shouldUseThePrimary_whenThereAreNoReplicas() throws SQLException
+    {
+        // arrange
+        CountingDataSource primary = new CountingDataSource(false);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.of(), 2000);
+
+        // act
+        readOnly(dataSource);
+
+        // assert
+        assertEquals(1, primary.connections);
+    }
+
+    @Test
+    public void getConnection_shouldUseTheStreamingPool_forStreamingCalls() throws SQLException
+    {
+        // arrange
+        CountingDataSource primary = new CountingDataSource(false);
+        CountingDataSource replica = new CountingDataSource(false);
+        CountingDataSource streaming = new CountingDataSource(false);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, List.<DataSource>of(replica), streaming, 2000);
+
+        // act
+        boolean previous = ReplicaRoutingDataSource.enterStreaming();
+        try
+        {
+            readOnly(dataSource);
+        }
+        finally
+        {
+            ReplicaRoutingDataSource.exitStreaming(previous);
+        }
+        readOnly(dataSource);
+
+        // assert
+        assertEquals(1, streaming.connections, "Because only the streaming pool never reclaims a long-held connection.");
+        assertEquals(1, replica.connections);
+        assertEquals(0, primary.connections);
+    }
+}
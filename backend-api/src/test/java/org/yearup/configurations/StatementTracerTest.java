@@ -0,0 +1,148 @@
+package org.yearup.configurations;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementTracerTest
+{
+    private static final String SELECT_PRODUCT = "SELECT * FROM products WHERE product_id = ?";
+
+    private StatementTracer tracer;
+
+    @BeforeEach
+    public void setup()
+    {
+        tracer = new StatementTracer(true, 200, 2);
+    }
+
+    @AfterEach
+    public void cleanup()
+    {
+        tracer.detach();
+    }
+
+    /**
+     * @return a connection whose queries each return the given number of rows.
+     */
+    private static Connection fakeConnection(int rows)
+    {
+        return (Connection) Proxy.newProxyInstance(StatementTracerTest.class.getClassLoader(), new Class<?>[] { Connection.class },
+                (connection, method, args) -> {
+                    if (!method.getName().equals("prepareStatement"))
+                    {
+                        return null;
+                    }
+                    return Proxy.newProxyInstance(StatementTracerTest.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+                            (statement, statementMethod, statementArgs) -> {
+                                if (!statementMethod.getName().equals("executeQuery"))
+                                {
+                                    return null;
+                                }
+                                AtomicInteger left = new AtomicInteger(rows);
+                                return Proxy.newProxyInstance(StatementTracerTest.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                                        (resultSet, resultSetMethod, resultSetArgs) ->
+                                                resultSetMethod.getName().equals("next") ? left.getAndDecrement() > 0 : null);
+                            });
+                });
+    }
+
+    @Test
+    public void wrap_shouldCountEveryExecution_towardsTheRequest() throws SQLException
+    {
+        // arrange
+        RequestTrace trace = tracer.begin("GET /cart");
+        Connection connection = tracer.wrap(fakeConnection(3));
+
+        // act
+        int rows = 0;
+        for (int productId = 1; productId <= 3; productId++)
+        {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCT);
+            statement.setInt(1, productId);
+            ResultSet row = statement.executeQuery();
+            while (row.next())
+            {
+                rows++;
+            }
+            statement.close();
+        }
+        connection.close();
+
+        // assert
+        assertEquals(9, rows, "Because the tracer must pass every row through.");
+        assertEquals(3, trace.getRoundTrips());
+        assertEquals(SELECT_PRODUCT, trace.getMostRepeated().getKey());
+        assertEquals(3, trace.getMostRepeated().getValue());
+        assertTrue(tracer.finish(trace), "Because 3 statements is over the budget of 2.");
+    }
+
+    @Test
+    public void wrap_shouldFinishExecutions_leftOpenUntilTheConnectionCloses() throws SQLException
+    {
+        // arrange
+        RequestTrace trace = tracer.begin("GET /products/1");
+        Connection connection = tracer.wrap(fakeConnection(1));
+
+        // act
+        PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCT);
+        statement.setInt(1, 1);
+        statement.executeQuery().next();
+        connection.close();
+
+        // assert
+        assertEquals(1, trace.getRoundTrips());
+        assertFalse(tracer.finish(trace), "Because one statement is within the budget.");
+    }
+
+    @Test
+    public void propagate_shouldCountReads_fromOtherThreads() throws Exception
+    {
+        // arrange
+        RequestTrace trace = tracer.begin("GET /categories");
+        Connection connection = tracer.wrap(fakeConnection(0));
+
+        // act
+        Supplier<Object> read = StatementTracer.propagate(() -> {
+            try
+            {
+                connection.prepareStatement(SELECT_PRODUCT).executeQuery();
+                connection.close();
+            }
+            catch (SQLException e)
+            {
+                throw new RuntimeException(e);
+            }
+            return null;
+        });
+        Thread reader = new Thread(read::get);
+        reader.start();
+        reader.join();
+
+        // assert
+        assertEquals(1, trace.getRoundTrips());
+    }
+
+    @Test
+    public void wrap_shouldHandOutTheConnection_whenDisabled()
+    {
+        // arrange
+        Connection connection = fakeConnection(0);
+
+        // act
+        Connection wrapped = new StatementTracer(false, 200, 20).wrap(connection);
+
+        // assert
+        assertSame(connection, wrapped);
+    }
+}
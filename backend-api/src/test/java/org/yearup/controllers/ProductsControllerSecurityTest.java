@@ -0,0 +1,99 @@
+package org.yearup.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Calls the bulk endpoints through the same method security as the application, since the roles they need
+ * are only checked by the proxy around the controller.
+ */
+class ProductsControllerSecurityTest
+{
+    private AnnotationConfigApplicationContext context;
+    private ProductsController controller;
+
+    @BeforeEach
+    public void setup()
+    {
+        context = new AnnotationConfigApplicationContext(MethodSecurityConfig.class);
+        controller = context.getBean(ProductsController.class);
+    }
+
+    @AfterEach
+    public void teardown()
+    {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+    @Test
+    public void export_shouldBeDenied_toAnonymousClients()
+    {
+        // arrange
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        // act
+        // assert
+        assertThrows(AccessDeniedException.class, () -> controller.export(null, null, null, null, "csv"));
+        assertThrows(AccessDeniedException.class, () -> controller.importProducts("csv", new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void export_shouldBeDenied_toUsers()
+    {
+        // arrange
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", "password", "ROLE_USER"));
+
+        // act
+        // assert
+        assertThrows(AccessDeniedException.class, () -> controller.export(null, null, null, null, "csv"),
+                "Because the export lists stock levels, like the rows import takes.");
+        assertThrows(AccessDeniedException.class, () -> controller.importProducts("csv", new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void export_shouldBeAllowed_forAdmins()
+    {
+        // arrange
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("admin", "password", "ROLE_ADMIN"));
+
+        // act
+        // the body is only written once the response is streamed, so no DAO is needed to check the guard
+        HttpStatus status = controller.export(null, null, null, null, "csv").getStatusCode();
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> controller.importProducts("xml", new ByteArrayInputStream(new byte[0])));
+
+        // assert
+        assertEquals(HttpStatus.OK, status);
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus(), "Because the admin got past the guard to the format check.");
+    }
+
+    @Configuration
+    @EnableGlobalMethodSecurity(prePostEnabled = true)
+    static class MethodSecurityConfig
+    {
+        @Bean
+        public ProductsController productsController()
+        {
+            return new ProductsController(null, null, null, null, null, null, new ObjectMapper(), 100, 500);
+        }
+    }
+}
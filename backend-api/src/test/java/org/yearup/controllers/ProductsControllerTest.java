@@ -0,0 +1,52 @@
+package org.yearup.controllers;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductsControllerTest
+{
+    @Test
+    public void reply_shouldReturnTheResult_whenTheReadHasFinished()
+    {
+        // arrange
+        CompletableFuture<String> read = CompletableFuture.completedFuture("product");
+
+        // act
+        Object reply = ProductsController.reply(read);
+
+        // assert
+        assertEquals("product", reply, "Because a finished read must not start async processing.");
+    }
+
+    @Test
+    public void reply_shouldReturnTheFuture_whileTheReadIsRunning()
+    {
+        // arrange
+        CompletableFuture<String> read = new CompletableFuture<>();
+
+        // act
+        Object reply = ProductsController.reply(read);
+
+        // assert
+        assertSame(read, reply);
+    }
+
+    @Test
+    public void reply_shouldThrowTheReadsStatus_whenTheReadHasFailed()
+    {
+        // arrange
+        CompletableFuture<String> read = CompletableFuture.<String>failedFuture(new IllegalStateException("connection reset"))
+                .exceptionally(ProductsController::readFailed);
+
+        // act
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> ProductsController.reply(read));
+
+        // assert
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, ex.getStatus());
+    }
+}
@@ -0,0 +1,69 @@
+package org.yearup.data;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCursorTest
+{
+    private static final Product HEADSET = new Product(7, "Headset | Wireless", new BigDecimal("99.90"), 1, "", "PC", 10, false, "");
+
+    @Test
+    public void decode_shouldReturn_theEncodedPosition()
+    {
+        // arrange
+        String byName = ProductCursor.after(ProductSort.NAME, HEADSET).encode();
+        String byPrice = ProductCursor.after(ProductSort.PRICE, HEADSET).encode();
+
+        // act
+        ProductCursor name = ProductCursor.decode(byName, ProductSort.NAME);
+        ProductCursor price = ProductCursor.decode(byPrice, ProductSort.PRICE);
+
+        // assert
+        assertEquals(7, name.getProductId());
+        assertEquals("Headset | Wireless", name.getName(), "Because a separator inside the name must survive the round trip.");
+        assertEquals(7, price.getProductId());
+        assertEquals(new BigDecimal("99.90"), price.getPrice());
+    }
+
+    @Test
+    public void decode_shouldReject_aCursorCreatedForAnotherSort()
+    {
+        // arrange
+        String byName = ProductCursor.after(ProductSort.NAME, HEADSET).encode();
+
+        // act
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> ProductCursor.decode(byName, ProductSort.PRICE));
+
+        // assert
+        assertTrue(ex.getMessage().contains("NAME"), "Because the client should be told which sort the cursor belongs to.");
+    }
+
+    @Test
+    public void decode_shouldReject_malformedTokens()
+    {
+        // arrange
+        String notBase64 = "not a cursor!";
+        String missingParts = encode("PRICE|7");
+        String badPrice = encode("PRICE|7|cheap");
+        String badSort = encode("COLOUR|7|red");
+
+        // act / assert
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(notBase64, ProductSort.PRICE));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(missingParts, ProductSort.PRICE));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(badPrice, ProductSort.PRICE));
+        assertThrows(IllegalArgumentException.class, () -> ProductCursor.decode(badSort, ProductSort.PRICE));
+    }
+
+    private static String encode(String raw)
+    {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,56 @@
+package org.yearup.data.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogReadExecutorTest
+{
+    @Test
+    public void supply_shouldRunOnAVirtualThread_whenEnabled()
+    {
+        // arrange
+        CatalogReadExecutor executor = new CatalogReadExecutor(true);
+
+        // act
+        boolean virtual = executor.supply(() -> Thread.currentThread().isVirtual()).join();
+        executor.stop();
+
+        // assert
+        assertTrue(virtual);
+    }
+
+    @Test
+    public void supply_shouldRunOnTheCallingThread_whenDisabled()
+    {
+        // arrange
+        CatalogReadExecutor executor = new CatalogReadExecutor(false);
+        Thread caller = Thread.currentThread();
+
+        // act
+        CompletableFuture<Thread> future = executor.supply(Thread::currentThread);
+
+        // assert
+        assertTrue(future.isDone(), "Because the read should already have run.");
+        assertSame(caller, future.join());
+    }
+
+    @Test
+    public void supply_shouldFailTheFuture_ratherThanThrow()
+    {
+        // arrange
+        CatalogReadExecutor executor = new CatalogReadExecutor(false);
+
+        // act
+        CompletableFuture<Object> future = executor.supply(() -> {
+            throw new IllegalArgumentException("bad cursor");
+        });
+
+        // assert
+        CompletionException thrown = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(IllegalArgumentException.class, thrown.getCause());
+    }
+}
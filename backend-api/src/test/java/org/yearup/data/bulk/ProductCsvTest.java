@@ -0,0 +1,71 @@
+package org.yearup.data.bulk;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCsvTest
+{
+    @Test
+    public void next_shouldReadWhatWriteWrote_includingQuotesAndLineBreaks() throws IOException
+    {
+        // arrange
+        Product product = new Product(7, "Controller, \"Pro\"", new BigDecimal("59.99"), 2,
+                "Wireless.\nTwo-year warranty.", "Black", 40, true, "controller.jpg");
+        StringWriter out = new StringWriter();
+        ProductCsv.writeHeader(out);
+        ProductCsv.write(out, product);
+
+        // act
+        ProductCsv csv = new ProductCsv(new StringReader(out.toString()));
+        Product read = csv.next();
+
+        // assert
+        assertEquals(product.getName(), read.getName());
+        assertEquals(product.getPrice(), read.getPrice());
+        assertEquals(product.getCategoryId(), read.getCategoryId());
+        assertEquals(product.getDescription(), read.getDescription());
+        assertEquals(product.getSubCategory(), read.getSubCategory());
+        assertEquals(product.getImageUrl(), read.getImageUrl());
+        assertEquals(product.getStock(), read.getStock());
+        assertTrue(read.isFeatured());
+        assertEquals(0, read.getProductId(), "Because imported products are given new ids.");
+        assertEquals(2, csv.getLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    public void next_shouldReportABadRow_andMoveOnToTheNext() throws IOException
+    {
+        // arrange
+        String file = "category_id,name,price\n" +
+                "1,Headset,not-a-price\n" +
+                "\n" +
+                "1,Keyboard,49.50\n";
+        ProductCsv csv = new ProductCsv(new StringReader(file));
+
+        // act
+        // assert
+        assertThrows(IllegalArgumentException.class, csv::next);
+        assertEquals(2, csv.getLine());
+
+        Product keyboard = csv.next();
+        assertEquals("Keyboard", keyboard.getName());
+        assertEquals(4, csv.getLine(), "Because the blank line is skipped but still counted.");
+    }
+
+    @Test
+    public void constructor_shouldRejectAHeader_withoutTheRequiredColumns()
+    {
+        // act
+        // assert
+        assertThrows(IllegalArgumentException.class, () -> new ProductCsv(new StringReader("name,stock\nHeadset,3\n")));
+        assertThrows(IllegalArgumentException.class, () -> new ProductCsv(new StringReader("")));
+    }
+}
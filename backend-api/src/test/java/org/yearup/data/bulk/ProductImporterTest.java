@@ -0,0 +1,109 @@
+package org.yearup.data.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.ImportResult;
+import org.yearup.models.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductImporterTest
+{
+    private BatchRecordingProductDao productDao;
+    private ProductImporter importer;
+
+    @BeforeEach
+    public void setup()
+    {
+        productDao = new BatchRecordingProductDao();
+        importer = new ProductImporter(productDao, new ObjectMapper(), 2, 100);
+    }
+
+    private static InputStream body(String text)
+    {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void importCsv_shouldInsertInChunks() throws IOException
+    {
+        // arrange
+        String file = "name,price,category_id\n" +
+                "Headset,20.00,1\n" +
+                "Keyboard,49.50,1\n" +
+                "Mouse,19.99,2\n";
+
+        // act
+        ImportResult result = importer.importCsv(body(file));
+
+        // assert
+        assertEquals(3, result.getRowsRead());
+        assertEquals(3, result.getRowsImported());
+        assertEquals(List.of(2, 1), productDao.batchSizes, "Because the chunk size is 2.");
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    public void importNdjson_shouldReportBadRows_andStoreTheRest() throws IOException
+    {
+        // arrange
+        String file = "{\"name\":\"Headset\",\"price\":20.00,\"categoryId\":1}\n" +
+                "{\"name\":\"Keyboard\",\n" +
+                "{\"name\":\"Mouse\",\"price\":19.99,\"categoryId\":" + BatchRecordingProductDao.MISSING_CATEGORY + "}\n" +
+                "{\"name\":\"\",\"price\":19.99,\"categoryId\":1}\n" +
+                "{\"name\":\"Monitor\",\"price\":199.99,\"categoryId\":2}\n";
+
+        // act
+        ImportResult result = importer.importNdjson(body(file));
+
+        // assert
+        assertEquals(5, result.getRowsRead());
+        assertEquals(2, result.getRowsImported());
+        assertEquals(3, result.getRowsFailed());
+        assertEquals(List.of(2L, 3L, 4L), result.getErrors().stream().map(error -> error.getLine()).sorted().toList());
+    }
+
+    /**
+     * Stands in for the database, and rejects a whole batch when any product in it is in a category that does not exist.
+     */
+    private static class BatchRecordingProductDao extends MySqlProductDao
+    {
+        static final int MISSING_CATEGORY = 99;
+
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private int nextId = 1;
+
+        BatchRecordingProductDao()
+        {
+            super(null);
+        }
+
+        @Override
+        public List<Product> createAll(List<Product> products)
+        {
+            if (products.stream().anyMatch(product -> product.getCategoryId() == MISSING_CATEGORY))
+            {
+                throw new RuntimeException("Cannot add or update a child row: a foreign key constraint fails");
+            }
+
+            batchSizes.add(products.size());
+            List<Product> created = new ArrayList<>();
+            for (Product product : products)
+            {
+                created.add(new Product(nextId++, product.getName(), product.getPrice(), product.getCategoryId(),
+                        product.getDescription(), product.getSubCategory(), product.getStock(), product.isFeatured(),
+                        product.getImageUrl()));
+            }
+            return created;
+        }
+    }
+}
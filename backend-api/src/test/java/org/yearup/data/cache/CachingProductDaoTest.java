@@ -0,0 +1,262 @@
+package org.yearup.data.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductChangeListener;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CachingProductDaoTest
+{
+    private InMemoryProductDao database;
+    private CachingProductDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new InMemoryProductDao();
+        database.create(new Product(0, "Controller", new BigDecimal("59.99"), 1, "", "Xbox", 10, false, ""));
+        database.create(new Product(0, "Headset", new BigDecimal("99.99"), 2, "", "PC", 10, false, ""));
+        database.queries = 0;
+
+        dao = new CachingProductDao(database, 100, 100);
+    }
+
+    @Test
+    public void getById_shouldOnlyQueryTheDatabase_once()
+    {
+        // act
+        dao.getById(1);
+        dao.getById(1);
+
+        // assert
+        assertEquals(1, database.queries, "Because the second read should be served from the cache.");
+        assertEquals(1, dao.getProductsById().getHitCount());
+        assertEquals(1, dao.getProductsById().getMissCount());
+    }
+
+    @Test
+    public void bindTo_shouldPublish_theCountersOfEachCache()
+    {
+        // arrange
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dao.bindTo(registry);
+
+        // act
+        dao.getById(1);
+        dao.getById(1);
+        dao.listByCategoryId(2);
+
+        // assert
+        assertEquals(1.0, registry.get("product.cache.requests").tags("cache", "by-id", "result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("product.cache.requests").tags("cache", "by-id", "result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("product.cache.requests").tags("cache", "by-category", "result", "miss").functionCounter().count());
+        assertEquals(0.0, registry.get("product.cache.evictions").tag("cache", "searches").functionCounter().count());
+        assertEquals(1.0, registry.get("product.cache.size").tag("cache", "by-id").gauge().value());
+    }
+
+    @Test
+    public void getById_shouldNotCacheARead_thatAnUpdateOvertook()
+    {
+        // arrange
+        // the read sees the row as it was, then an update commits and evicts the product before the read is cached
+        database.afterRead = () -> {
+            database.afterRead = null;
+            dao.update(1, new Product(1, "Controller", new BigDecimal("49.99"), 1, "", "Xbox", 10, false, ""));
+        };
+
+        // act
+        Product overtaken = dao.getById(1);
+        Product actual = dao.getById(1);
+
+        // assert
+        assertEquals(new BigDecimal("59.99"), overtaken.getPrice());
+        assertEquals(new BigDecimal("49.99"), actual.getPrice(), "Because a read from before the update must not be cached.");
+    }
+
+    @Test
+    public void update_shouldEvict_matchingSearchesOnly()
+    {
+        // arrange
+        dao.search(1, null, null, null);
+        dao.search(2, null, null, null);
+        Product product = dao.getById(1);
+        database.queries = 0;
+
+        // act
+        dao.update(1, new Product(1, "Controller", new BigDecimal("49.99"), 1, "", "Xbox", 10, false, ""));
+        var cat1 = dao.search(1, null, null, null);
+        dao.search(2, null, null, null);
+
+        // assert
+        assertEquals(new BigDecimal("49.99"), cat1.get(0).getPrice(), "Because the update should be visible right away.");
+        assertEquals(1, database.queries, "Because only the category 1 search should be re-queried.");
+        assertEquals(new BigDecimal("59.99"), product.getPrice());
+    }
+
+    @Test
+    public void create_shouldEvict_theNewProductsCategory()
+    {
+        // arrange
+        dao.listByCategoryId(2);
+
+        // act
+        dao.create(new Product(0, "Mouse", new BigDecimal("29.99"), 2, "", "PC", 10, false, ""));
+        var actual = dao.listByCategoryId(2);
+
+        // assert
+        assertEquals(2, actual.size(), "Because the new product belongs to category 2.");
+    }
+
+    @Test
+    public void stockChanged_shouldEvictTheProduct_andPassItOnAsSaved()
+    {
+        // arrange
+        List<Product> saved = new ArrayList<>();
+        dao.setListeners(List.of(new ProductChangeListener()
+        {
+            @Override
+            public void productSaved(Product product)
+            {
+                saved.add(product);
+            }
+
+            @Override
+            public void productDeleted(int productId)
+            {
+            }
+        }));
+        dao.getById(1);
+        dao.listByCategoryId(1);
+        // a checkout takes stock straight from the table, bypassing the cache
+        database.products.get(1).setStock(7);
+
+        // act
+        dao.stockChanged(List.of(1));
+
+        // assert
+        assertEquals(7, dao.getById(1).getStock());
+        assertEquals(7, dao.listByCategoryId(1).get(0).getStock());
+        assertEquals(1, saved.size(), "Because the search index and other listeners hold the product's stock too.");
+        assertEquals(7, saved.get(0).getStock());
+    }
+
+    @Test
+    public void lruCache_shouldEvict_theLeastRecentlyUsedEntry()
+    {
+        // arrange
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1);
+
+        // act
+        cache.put(3, "three");
+
+        // assert
+        assertEquals("one", cache.get(1));
+        assertEquals(null, cache.get(2), "Because 2 was the least recently used entry.");
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void lruCache_shouldSkipAPut_whenTheKeyWasInvalidatedSinceItsStamp()
+    {
+        // arrange
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        long removedStamp = cache.stamp(1);
+        cache.remove(1);
+        long clearedStamp = cache.stamp(2);
+        cache.removeIf(key -> false);
+
+        // act
+        cache.putIfUnchanged(1, "one", removedStamp);
+        cache.putIfUnchanged(2, "two", clearedStamp);
+        cache.putIfUnchanged(3, "three", cache.stamp(3));
+
+        // assert
+        assertEquals(null, cache.get(1));
+        assertEquals(null, cache.get(2), "Because removeIf cannot tell which loads in progress it invalidated.");
+        assertEquals("three", cache.get(3));
+    }
+
+    /**
+     * Stands in for the database so the cache can be tested without MySQL.
+     */
+    private static class InMemoryProductDao extends MySqlProductDao
+    {
+        private final Map<Integer, Product> products = new HashMap<>();
+        private int queries = 0;
+        private Runnable afterRead;
+
+        InMemoryProductDao()
+        {
+            super(null);
+        }
+
+        @Override
+        public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+        {
+            queries++;
+            return products.values().stream()
+                    .filter(p -> categoryId == null || p.getCategoryId() == categoryId)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        @Override
+        public List<Product> listByCategoryId(int categoryId)
+        {
+            return search(categoryId, null, null, null);
+        }
+
+        @Override
+        public Product getById(int productId)
+        {
+            queries++;
+            Product product = products.get(productId);
+            Product read = product == null ? null : copy(product);
+            if (afterRead != null)
+            {
+                afterRead.run();
+            }
+            return read;
+        }
+
+        @Override
+        public Product create(Product product)
+        {
+            Product created = copy(product);
+            created.setProductId(products.size() + 1);
+            products.put(created.getProductId(), created);
+            return copy(created);
+        }
+
+        @Override
+        public void update(int productId, Product product)
+        {
+            products.put(productId, copy(product));
+        }
+
+        @Override
+        public void delete(int productId)
+        {
+            products.remove(productId);
+        }
+
+        private static Product copy(Product p)
+        {
+            return new Product(p.getProductId(), p.getName(), p.getPrice(), p.getCategoryId(), p.getDescription(),
+                    p.getSubCategory(), p.getStock(), p.isFeatured(), p.getImageUrl());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.CartItemChange;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingShoppingCartDaoTest
+{
+    private static final Product CONTROLLER = new Product(1, "Controller", new BigDecimal("59.99"), 1, "", "Xbox", 10, false, "");
+    private static final Product HEADSET = new Product(2, "Headset", new BigDecimal("99.99"), 2, "", "PC", 10, false, "");
+
+    private InMemoryShoppingCartDao database;
+    private long now;
+    private CartSnapshotCache carts;
+    private CachingShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new InMemoryShoppingCartDao();
+        carts = new CartSnapshotCache(true, 1_000_000, 900, () -> now);
+        dao = new CachingShoppingCartDao(database, carts);
+    }
+
+    @Test
+    public void getByUserId_shouldOnlyQueryTheDatabase_once()
+    {
+        // act
+        dao.getByUserId(1);
+        dao.getByUserId(1);
+
+        // assert
+        assertEquals(1, database.reads, "Because the second read should be served from the cache.");
+        assertEquals(1, carts.getHitCount());
+        assertEquals(1, carts.getMissCount());
+    }
+
+    @Test
+    public void addProductToCart_shouldChangeTheCachedCart_withoutReadingItBack()
+    {
+        // arrange
+        dao.getByUserId(1);
+
+        // act
+        dao.addProductToCart(CONTROLLER, 1, 2);
+        dao.addProductToCart(CONTROLLER, 1);
+        ShoppingCart cart = dao.getByUserId(1);
+
+        // assert
+        assertEquals(1, database.reads);
+        assertEquals(3, cart.get(1).getQuantity());
+        assertEquals(3, database.quantity(1, 1), "Because every add must still be written to the database.");
+    }
+
+    @Test
+    public void updateCart_shouldApplyNetChangesInPlace_whenTheCartHoldsEveryAddedProduct()
+    {
+        // arrange
+        dao.addProductToCart(CONTROLLER, 1, 2);
+        dao.addProductToCart(HEADSET, 1, 1);
+        int reads = database.reads;
+
+        // act
+        ShoppingCart cart = dao.updateCart(1, List.of(new CartItemChange(1, 3), new CartItemChange(2, -1),
+                new CartItemChange(1, -1)));
+
+        // assert
+        assertEquals(reads, database.reads);
+        assertEquals(4, cart.get(1).getQuantity());
+        assertFalse(cart.contains(2), "Because an item taken to zero is removed.");
+        assertEquals(cart.getItems().keySet(), database.getByUserId(1).getItems().keySet());
+    }
+
+    @Test
+    public void getByUserId_shouldHandOutCopies()
+    {
+        // arrange
+        dao.addProductToCart(CONTROLLER, 1);
+
+        // act
+        dao.getByUserId(1).get(1).setQuantity(50);
+
+        // assert
+        assertEquals(1, dao.getByUserId(1).get(1).getQuantity(), "Because a caller's change must not reach the cache.");
+    }
+
+    @Test
+    public void addProductToCart_shouldReleaseTheCartsLock_whenTheWriteFails()
+    {
+        // arrange
+        dao.getByUserId(1);
+        database.failure = new RuntimeException("connection reset");
+
+        // act
+        assertThrows(RuntimeException.class, () -> dao.addProductToCart(CONTROLLER, 1));
+
+        // assert
+        assertFalse(carts.lockFor(1).isLocked(), "Because a failed write must not leave the user's cart locked.");
+        assertEquals(0, carts.get(1).getItems().size());
+    }
+
+    @Test
+    public void productSaved_shouldEvictCartsHoldingTheProduct_whenItsPriceChanged()
+    {
+        // arrange
+        dao.addProductToCart(CONTROLLER, 1);
+        dao.addProductToCart(HEADSET, 2);
+
+        // act
+        carts.productSaved(new Product(1, "Controller", new BigDecimal("49.99"), 1, "", "Xbox", 10, false, ""));
+
+        // assert
+        assertEquals(1, carts.size(), "Because only the cart holding the repriced product is dropped.");
+        assertNull(carts.get(1));
+        assertNotNull(carts.get(2));
+    }
+
+    @Test
+    public void productSaved_shouldReplaceTheProductInPlace_whenItsPriceIsTheSame()
+    {
+        // arrange
+        dao.addProductToCart(CONTROLLER, 1);
+
+        // act
+        carts.productSaved(new Product(1, "Wireless Controller", new BigDecimal("59.990"), 1, "", "Xbox", 10, false, ""));
+
+        // assert
+        assertEquals("Wireless Controller", carts.get(1).get(1).getProduct().getName());
+    }
+
+    @Test
+    public void put_shouldEvictTheLeastRecentlyUsedCarts_whenOverTheMemoryBudget()
+    {
+        // arrange
+        ShoppingCart cart = cartOf(CONTROLLER);
+        long weight = CartSnapshotCache.weigh(cart);
+        carts = new CartSnapshotCache(true, weight * 2, 900, () -> now);
+        carts.put(1, cart);
+        carts.put(2, cart);
+        carts.get(1);
+
+        // act
+        carts.put(3, cart);
+
+        // assert
+        assertNotNull(carts.get(1));
+        assertNull(carts.get(2), "Because the second cart was used least recently.");
+        assertNotNull(carts.get(3));
+        assertEquals(weight * 2, carts.getBytes());
+    }
+
+    @Test
+    public void get_shouldEvictCarts_idleLongerThanTheIdleTime()
+    {
+        // arrange
+        carts.put(1, cartOf(CONTROLLER));
+        now += TimeUnit.SECONDS.toNanos(600);
+        carts.put(2, cartOf(HEADSET));
+
+        // act
+        now += TimeUnit.SECONDS.toNanos(600);
+        ShoppingCart first = carts.get(1);
+        ShoppingCart second = carts.get(2);
+
+        // assert
+        assertNull(first);
+        assertNotNull(second);
+        assertEquals(1, carts.getEvictionCount());
+    }
+
+    private static ShoppingCart cartOf(Product product)
+    {
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(product);
+        ShoppingCart cart = new ShoppingCart();
+        cart.add(item);
+        return cart;
+    }
+
+    /**
+     * Keeps carts as user id to product id to quantity, and counts how often a whole cart is read.
+     */
+    private static class InMemoryShoppingCartDao extends MySqlShoppingCartDao
+    {
+        private final Map<Integer, Map<Integer, Integer>> rows = new HashMap<>();
+        private final Map<Integer, Product> products = Map.of(1, CONTROLLER, 2, HEADSET);
+        private int reads = 0;
+        private RuntimeException failure;
+
+        InMemoryShoppingCartDao()
+        {
+            super(null);
+        }
+
+        int quantity(int userId, int productId)
+        {
+            return rows.getOrDefault(userId, Map.of()).getOrDefault(productId, 0);
+        }
+
+        @Override
+        public ShoppingCart getByUserId(int userId)
+        {
+            reads++;
+            ShoppingCart cart = new ShoppingCart();
+            rows.getOrDefault(userId, Map.of()).forEach((productId, quantity) ->
+            {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(products.get(productId));
+                item.setQuantity(quantity);
+                cart.add(item);
+            });
+            return cart;
+        }
+
+        @Override
+        public ShoppingCart addProductToCart(Product product, int userId, int quantity)
+        {
+            addToCart(product.getProductId(), userId, quantity);
+            return getByUserId(userId);
+        }
+
+        @Override
+        public void addToCart(int productId, int userId, int quantity)
+        {
+            if (failure != null)
+            {
+                throw failure;
+            }
+            rows.computeIfAbsent(userId, key -> new HashMap<>()).merge(productId, quantity, Integer::sum);
+        }
+
+        @Override
+        public void removeProductInCart(int productId, int userId, int quantity)
+        {
+            rows.computeIfAbsent(userId, key -> new HashMap<>()).computeIfPresent(productId,
+                    (key, held) -> held > quantity ? held - quantity : null);
+        }
+
+        @Override
+        public ShoppingCart updateCart(int userId, List<CartItemChange> changes)
+        {
+            applyChanges(userId, changes);
+            return getByUserId(userId);
+        }
+
+        @Override
+        public void applyChanges(int userId, List<CartItemChange> changes)
+        {
+            Map<Integer, Integer> cart = rows.computeIfAbsent(userId, key -> new HashMap<>());
+            for (CartItemChange change : changes)
+            {
+                cart.merge(change.getProductId(), change.getQuantityDelta(), Integer::sum);
+            }
+            cart.values().removeIf(quantity -> quantity <= 0);
+        }
+
+        @Override
+        public ShoppingCart emptyCart(int userId)
+        {
+            deleteCart(userId);
+            return getByUserId(userId);
+        }
+
+        @Override
+        public void deleteCart(int userId)
+        {
+            rows.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.yearup.data.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Category;
+import org.yearup.models.ProductPage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogSnapshotsTest
+{
+    private CatalogVersion catalogVersion;
+    private CatalogSnapshots snapshots;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    public void setup()
+    {
+        catalogVersion = new CatalogVersion();
+        snapshots = new CatalogSnapshots(catalogVersion, new ObjectMapper());
+        loads = new AtomicInteger();
+    }
+
+    private CompletableFuture<List<Category>> loadCategories()
+    {
+        loads.incrementAndGet();
+        List<Category> categories = new ArrayList<>();
+        for (int i = 1; i <= 50; i++)
+        {
+            categories.add(new Category(i, "Category " + i, "Games and accessories for platform " + i));
+        }
+        return CompletableFuture.completedFuture(categories);
+    }
+
+    @Test
+    public void get_shouldLoadOnce_untilTheCatalogChanges()
+    {
+        // act
+        var first = snapshots.get("categories", this::loadCategories).join();
+        var second = snapshots.get("categories", this::loadCategories).join();
+        catalogVersion.bump();
+        var third = snapshots.get("categories", this::loadCategories).join();
+
+        // assert
+        assertSame(first, second, "Because nothing was written between the first two requests.");
+        assertNotSame(second, third, "Because the catalog changed before the third request.");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void get_shouldGzip_theSameJson() throws IOException
+    {
+        // act
+        var snapshot = snapshots.get("categories", this::loadCategories).join();
+
+        // assert
+        byte[] unzipped;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.getGzip())))
+        {
+            unzipped = in.readAllBytes();
+        }
+        assertArrayEquals(snapshot.getJson(), unzipped);
+        assertTrue(snapshot.getGzip().length < snapshot.getJson().length, "Because repetitive JSON should compress.");
+    }
+
+    @Test
+    public void get_shouldKeepTheCursor_ofAPage()
+    {
+        // act
+        var snapshot = snapshots.get("category:1",
+                () -> CompletableFuture.completedFuture(new ProductPage(new ArrayList<>(), "next-page"))).join();
+
+        // assert
+        assertEquals("next-page", snapshot.getNext());
+        assertEquals("[]", new String(snapshot.getJson()), "Because only the products of a page are sent in the body.");
+    }
+}
@@ -0,0 +1,90 @@
+package org.yearup.data.facets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.FacetCount;
+import org.yearup.models.PriceBucket;
+import org.yearup.models.Product;
+import org.yearup.models.ProductFacets;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetIndexTest
+{
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    public void setup()
+    {
+        index = new ProductFacetIndex(null, new BigDecimal[] { new BigDecimal("25"), new BigDecimal("100") });
+        index.put(product(1, 1, "Action", "19.99"));
+        index.put(product(2, 1, "RPG", "59.99"));
+        index.put(product(3, 2, "Action", "99.99"));
+        index.put(product(4, 2, "action", "129.99"));
+    }
+
+    @Test
+    public void facets_shouldCount_everything_withoutFilters()
+    {
+        // act
+        ProductFacets actual = index.facets(null, null, null, null);
+
+        // assert
+        assertEquals(4, actual.getTotal());
+        assertEquals(Map.of("1", 2, "2", 2), counts(actual.getCategories()));
+        assertEquals(Map.of("Action", 3, "RPG", 1), counts(actual.getSubCategories()), "Because subcategories ignore case.");
+        assertEquals(List.of(1, 2, 1), actual.getPrices().stream().map(PriceBucket::getCount).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void facets_shouldLeaveOut_eachFacetsOwnFilter()
+    {
+        // act
+        ProductFacets actual = index.facets(1, null, null, "action");
+
+        // assert
+        assertEquals(1, actual.getTotal());
+        assertEquals(Map.of("1", 1, "2", 2), counts(actual.getCategories()), "Because the category facet ignores the chosen category.");
+        assertEquals(Map.of("Action", 1, "RPG", 1), counts(actual.getSubCategories()));
+    }
+
+    @Test
+    public void facets_shouldApply_thePriceRange()
+    {
+        // act
+        ProductFacets actual = index.facets(null, new BigDecimal("50"), new BigDecimal("100"), null);
+
+        // assert
+        assertEquals(2, actual.getTotal());
+        assertEquals(Map.of("1", 1, "2", 1), counts(actual.getCategories()));
+    }
+
+    @Test
+    public void put_shouldMove_andRemoveShouldDrop_theProduct()
+    {
+        // act
+        index.put(product(1, 2, "RPG", "19.99"));
+        index.remove(4);
+        ProductFacets actual = index.facets(null, null, null, null);
+
+        // assert
+        assertEquals(3, actual.getTotal());
+        assertEquals(Map.of("1", 1, "2", 2), counts(actual.getCategories()));
+        assertEquals(Map.of("Action", 1, "RPG", 2), counts(actual.getSubCategories()));
+    }
+
+    private static Product product(int productId, int categoryId, String subCategory, String price)
+    {
+        return new Product(productId, "Product " + productId, new BigDecimal(price), categoryId, "", subCategory, 10, false, "");
+    }
+
+    private static Map<String, Integer> counts(List<FacetCount> facets)
+    {
+        return facets.stream().collect(Collectors.toMap(FacetCount::getValue, FacetCount::getCount));
+    }
+}
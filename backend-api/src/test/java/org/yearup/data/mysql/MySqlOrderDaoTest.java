@@ -0,0 +1,76 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.OutOfStockException;
+import org.yearup.models.Order;
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlOrderDaoTest extends BaseDaoTestClass
+{
+    private MySqlOrderDao dao;
+    private MySqlShoppingCartDao shoppingCartDao;
+    private MySqlProductDao productDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlOrderDao(dataSource);
+        shoppingCartDao = new MySqlShoppingCartDao(dataSource);
+        productDao = new MySqlProductDao(dataSource);
+    }
+
+    @Test
+    public void checkout_shouldCreateOrder_takeStock_andEmptyCart()
+    {
+        // arrange
+        Product smartphone = productDao.getById(1);
+        Product laptop = productDao.getById(2);
+        shoppingCartDao.addProductToCart(smartphone, 1, 2);
+        shoppingCartDao.addProductToCart(laptop, 1, 1);
+
+        // act
+        Order actual = dao.checkout(1);
+
+        // assert
+        assertTrue(actual.getOrderId() > 0);
+        assertEquals("Dallas", actual.getCity());
+        assertEquals(2, actual.getLineItems().size());
+        assertEquals(new BigDecimal("1899.97"), actual.getTotal());
+        assertEquals(smartphone.getStock() - 2, productDao.getById(1).getStock());
+        assertEquals(laptop.getStock() - 1, productDao.getById(2).getStock());
+        assertTrue(shoppingCartDao.getByUserId(1).getItems().isEmpty(), "Because checking out clears the cart.");
+    }
+
+    @Test
+    public void checkout_shouldKeepNothing_whenAProductIsOutOfStock()
+    {
+        // arrange
+        Product smartphone = productDao.getById(1);
+        Product laptop = productDao.getById(2);
+        shoppingCartDao.addProductToCart(smartphone, 1, 1);
+        shoppingCartDao.addProductToCart(laptop, 1, laptop.getStock() + 1);
+
+        // act
+        OutOfStockException actual = assertThrows(OutOfStockException.class, () -> dao.checkout(1));
+
+        // assert
+        assertEquals(laptop.getProductId(), actual.getProductId());
+        assertEquals(smartphone.getStock(), productDao.getById(1).getStock(), "Because the other product's stock is rolled back.");
+        assertEquals(2, shoppingCartDao.getByUserId(1).getItems().size(), "Because the cart is left as it was.");
+    }
+
+    @Test
+    public void checkout_shouldReturnNull_whenCartIsEmpty()
+    {
+        // act
+        Order actual = dao.checkout(1);
+
+        // assert
+        assertNull(actual);
+    }
+}
@@ -4,11 +4,16 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class MySqlProductDaoTest extends BaseDaoTestClass
 {
@@ -45,4 +50,56 @@ class MySqlProductDaoTest extends BaseDaoTestClass
         assertEquals(expected.getPrice(), actual.getPrice(), "Because I tried to get product 1 from the database.");
     }
 
+    @Test
+    public void search_byPrice_shouldPageThroughEqualPrices_inProductIdOrder()
+    {
+        // act
+        var actual = allPages(null, ProductSort.PRICE);
+
+        // assert
+        assertEquals(List.of(4, 6, 9, 5, 12, 8, 7, 11, 3, 10, 1, 2), actual,
+                "Because products sharing a price must be neither skipped nor repeated across pages.");
+    }
+
+    @Test
+    public void search_byName_shouldPageThroughEqualNames_inProductIdOrder()
+    {
+        // arrange
+        int first = dao.create(new Product(0, "Apron", new BigDecimal("19.99"), 3, "", "Red", 10, false, "")).getProductId();
+        int second = dao.create(new Product(0, "Apron", new BigDecimal("14.99"), 3, "", "Blue", 10, false, "")).getProductId();
+
+        // act
+        var actual = allPages(3, ProductSort.NAME);
+
+        // assert
+        assertEquals(List.of(first, second, 11, 10, 12), actual);
+    }
+
+    @Test
+    public void search_shouldReject_aCursorFromAnotherSort()
+    {
+        // arrange
+        String byName = dao.search(null, null, null, null, ProductSort.NAME, null, 1).getNext();
+
+        // act / assert
+        assertThrows(IllegalArgumentException.class,
+                () -> dao.search(null, null, null, null, ProductSort.PRICE, byName, 1));
+    }
+
+    /**
+     * Lists one product per page, following each page's cursor, the way a client pages through a listing.
+     */
+    private List<Integer> allPages(Integer categoryId, ProductSort sort)
+    {
+        List<Integer> productIds = new ArrayList<>();
+        String after = null;
+        do
+        {
+            ProductPage page = dao.search(categoryId, null, null, null, sort, after, 1);
+            page.getProducts().forEach(product -> productIds.add(product.getProductId()));
+            after = page.getNext();
+        }
+        while (after != null);
+        return productIds;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.yearup.models.CartItemChange;
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class MySqlShoppingCartDaoTest extends BaseDaoTestClass
+{
+    @Value("${datasource.url}")
+    private String serverUrl;
+
+    @Value("${datasource.testdb}")
+    private String testDb;
+
+    @Value("${datasource.username}")
+    private String username;
+
+    @Value("${datasource.password}")
+    private String password;
+
+    private MySqlShoppingCartDao dao;
+    private Product product;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlShoppingCartDao(dataSource);
+        product = new MySqlProductDao(dataSource).getById(1);
+    }
+
+    @Test
+    public void addProductToCart_shouldNotLoseIncrements_underConcurrentAdds() throws Exception
+    {
+        // arrange
+        int userId = 2;
+        int threads = 8;
+        int addsPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+
+        // the shared test connection would run every add one after another, so each thread needs a connection of its own
+        try (BasicDataSource pool = new BasicDataSource())
+        {
+            pool.setUrl(String.format("%s/%s", serverUrl, testDb));
+            pool.setUsername(username);
+            pool.setPassword(password);
+            pool.setMaxTotal(threads);
+            MySqlShoppingCartDao pooledDao = new MySqlShoppingCartDao(pool);
+
+            try
+            {
+                // act
+                for (int t = 0; t < threads; t++)
+                {
+                    results.add(executor.submit(() -> {
+                        for (int i = 0; i < addsPerThread; i++)
+                        {
+                            pooledDao.addProductToCart(product, userId);
+                        }
+                    }));
+                }
+                for (Future<?> result : results)
+                {
+                    result.get();
+                }
+
+                // assert
+                int actual = pooledDao.getByUserId(userId).get(product.getProductId()).getQuantity();
+                assertEquals(threads * addsPerThread, actual, "Because every one of the concurrent adds should be counted.");
+            }
+            finally
+            {
+                executor.shutdown();
+                // the pool commits, so the rollback after each test would not undo these adds
+                pooledDao.emptyCart(userId);
+            }
+        }
+    }
+
+    @Test
+    public void addProductToCart_shouldAdd_theRequestedQuantity()
+    {
+        // act
+        dao.addProductToCart(product, 1, 3);
+        var actual = dao.addProductToCart(product, 1, 2);
+
+        // assert
+        assertEquals(5, actual.get(product.getProductId()).getQuantity());
+    }
+
+    @Test
+    public void removeProductInCart_shouldDecrement_thenDelete()
+    {
+        // arrange
+        dao.addProductToCart(product, 1, 3);
+
+        // act
+        dao.removeProductInCart(product.getProductId(), 1, 2);
+        int remaining = dao.getByUserId(1).get(product.getProductId()).getQuantity();
+        dao.removeProductInCart(product.getProductId(), 1, 5);
+
+        // assert
+        assertEquals(1, remaining);
+        assertFalse(dao.getByUserId(1).contains(product.getProductId()), "Because removing more than remains deletes the item.");
+    }
+
+    @Test
+    public void updateCart_shouldApply_theNetChangePerProduct()
+    {
+        // arrange
+        dao.addProductToCart(product, 1, 2);
+
+        // act
+        var actual = dao.updateCart(1, List.of(
+                new CartItemChange(product.getProductId(), 3),
+                new CartItemChange(product.getProductId(), -1),
+                new CartItemChange(2, 4),
+                new CartItemChange(2, -4)));
+
+        // assert
+        assertEquals(4, actual.get(product.getProductId()).getQuantity());
+        assertFalse(actual.contains(2), "Because product 2 was added and removed in the same batch.");
+    }
+}
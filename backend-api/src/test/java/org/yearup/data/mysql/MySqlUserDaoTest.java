@@ -0,0 +1,50 @@
+package org.yearup.data.mysql;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.yearup.data.UsernameTakenException;
+import org.yearup.models.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlUserDaoTest extends BaseDaoTestClass
+{
+    private MySqlUserDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        dao = new MySqlUserDao(dataSource, new BCryptPasswordEncoder(4));
+    }
+
+    @Test
+    public void create_shouldReturnTheNewUser_withItsGeneratedId()
+    {
+        // act
+        User actual = dao.create(new User(0, "newbie", "password", "ROLE_USER"));
+
+        // assert
+        assertTrue(actual.getId() > 2, "Because the test data already has two users.");
+        assertEquals("newbie", actual.getUsername());
+        assertEquals("", actual.getPassword(), "Because the hash should never leave the DAO.");
+        assertEquals(actual.getId(), dao.getByUserName("newbie").getId());
+    }
+
+    @Test
+    public void create_shouldThrow_whenTheUsernameIsTaken()
+    {
+        // act
+        // assert
+        assertThrows(UsernameTakenException.class, () -> dao.create(new User(0, "user", "password", "ROLE_USER")));
+    }
+
+    @Test
+    public void exists_shouldFindOnlyExistingUsers()
+    {
+        // act
+        // assert
+        assertTrue(dao.exists("admin"));
+        assertFalse(dao.exists("nobody"));
+    }
+}
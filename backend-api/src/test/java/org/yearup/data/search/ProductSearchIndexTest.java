@@ -0,0 +1,167 @@
+package org.yearup.data.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest
+{
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    public void setup()
+    {
+        index = new ProductSearchIndex(null, true);
+        index.put(new Product(1, "Wireless Controller", new BigDecimal("59.99"), 1, "A controller for the living room.", "Xbox", 10, false, ""));
+        index.put(new Product(2, "Gaming Headset", new BigDecimal("99.99"), 1, "Surround sound with a wireless dongle.", "PC", 10, false, ""));
+        index.put(new Product(3, "Charging Stand", new BigDecimal("19.99"), 2, "Keeps a controller charged.", "Xbox", 10, false, ""));
+    }
+
+    @Test
+    public void search_shouldRank_nameMatchesFirst()
+    {
+        // act
+        var actual = ids(index.search("wireless ", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(1, 2), actual, "Because a name match outweighs a description match.");
+    }
+
+    @Test
+    public void search_shouldMatch_everyWord()
+    {
+        // act
+        var actual = ids(index.search("controller charged ", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(3), actual);
+    }
+
+    @Test
+    public void search_shouldMatch_prefixesAndTypos()
+    {
+        // act
+        var prefix = ids(index.search("head", null, null, null, null, null, 10));
+        var typo = ids(index.search("hedset ", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(2), prefix);
+        assertEquals(List.of(2), typo);
+    }
+
+    @Test
+    public void search_shouldNotExpand_aOneCharacterPrefix()
+    {
+        // act
+        var actual = ids(index.search("w", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(), actual, "Because one character would match most of the vocabulary.");
+    }
+
+    @Test
+    public void search_shouldExpand_aPrefixToAtMostMaxPrefixTerms()
+    {
+        // arrange
+        for (int i = 0; i < 70; i++)
+        {
+            index.put(new Product(100 + i, "Skin" + (char) ('a' + i / 26) + (char) ('a' + i % 26), new BigDecimal("9.99"), 3,
+                    "", "Decals", 10, false, ""));
+        }
+
+        // act
+        var actual = ids(index.search("skin", null, null, null, null, null, 100));
+
+        // assert
+        assertEquals(64, actual.size());
+    }
+
+    @Test
+    public void search_shouldKeepEachProductsBestMatch_whenSeveralTermsMatchTheFirstWord()
+    {
+        // arrange
+        index.put(new Product(4, "Controller Controllers", new BigDecimal("29.99"), 1, "", "Switch", 10, false, ""));
+
+        // act
+        var actual = ids(index.search("controller", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(1, 4, 3), actual, "Because each product is listed once, scored by its exact match.");
+    }
+
+    @Test
+    public void search_shouldMatch_everyWord_whenALaterWordExpandsToManyTerms()
+    {
+        // arrange
+        for (int i = 10; i < 20; i++)
+        {
+            index.put(new Product(i, "Charger Cable", new BigDecimal("9.99"), 3, "For a controller.", "Cables", 10, false, ""));
+        }
+
+        // act
+        var actual = ids(index.search("controller ch", null, null, null, null, null, 100));
+
+        // assert
+        assertEquals(List.of(3, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19), actual.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void search_shouldApply_theFilters()
+    {
+        // act
+        var actual = ids(index.search("controller ", 2, null, new BigDecimal("20"), null, null, 10));
+
+        // assert
+        assertEquals(List.of(3), actual);
+    }
+
+    @Test
+    public void search_shouldPage_withTheNextCursor()
+    {
+        // act
+        ProductPage first = index.search("controller ", null, null, null, null, null, 1);
+        ProductPage second = index.search("controller ", null, null, null, null, first.getNext(), 1);
+
+        // assert
+        assertEquals(List.of(1), ids(first));
+        assertEquals(List.of(3), ids(second));
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    public void put_shouldReplace_andRemoveShouldDrop_theOldTerms()
+    {
+        // act
+        index.put(new Product(1, "Racing Wheel", new BigDecimal("199.99"), 1, "", "PC", 10, false, ""));
+        var replaced = ids(index.search("wireless ", null, null, null, null, null, 10));
+        index.remove(2);
+        var removed = ids(index.search("wireless ", null, null, null, null, null, 10));
+
+        // assert
+        assertEquals(List.of(2), replaced);
+        assertTrue(removed.isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void withinOneEdit_shouldAllow_oneEditOnly()
+    {
+        assertTrue(ProductSearchIndex.withinOneEdit("headset", "hedset"));
+        assertTrue(ProductSearchIndex.withinOneEdit("headset", "haedset"));
+        assertTrue(ProductSearchIndex.withinOneEdit("headset", "headsets"));
+        assertTrue(ProductSearchIndex.withinOneEdit("headset", "headsot"));
+        assertFalse(ProductSearchIndex.withinOneEdit("headset", "hedsot"));
+    }
+
+    private static List<Integer> ids(ProductPage page)
+    {
+        return page.getProducts().stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,176 @@
+package org.yearup.data.stock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.mysql.BaseDaoTestClass;
+import org.yearup.data.mysql.MySqlOrderDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StockReservationsTest extends BaseDaoTestClass
+{
+    private StockReservations stockReservations;
+    private MySqlProductDao productDao;
+    private MySqlShoppingCartDao shoppingCartDao;
+    private MySqlOrderDao orderDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        stockReservations = new StockReservations(dataSource, true, 30, 500);
+        productDao = new MySqlProductDao(dataSource);
+        shoppingCartDao = new MySqlShoppingCartDao(dataSource);
+        orderDao = new MySqlOrderDao(dataSource, stockReservations);
+    }
+
+    @Test
+    public void reserve_shouldNeverOversell_underConcurrentReservations() throws Exception
+    {
+        // arrange
+        Product product = productDao.getById(1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        // act
+        for (int t = 0; t < threads; t++)
+        {
+            results.add(executor.submit(() -> {
+                int granted = 0;
+                while (stockReservations.reserve(product.getProductId(), 1) != null)
+                {
+                    granted++;
+                }
+                return granted;
+            }));
+        }
+        int actual = 0;
+        for (Future<Integer> result : results)
+        {
+            actual += result.get();
+        }
+        executor.shutdown();
+
+        // assert
+        assertEquals(product.getStock(), actual, "Because exactly the stock on hand should be handed out.");
+    }
+
+    @Test
+    public void release_shouldReturn_theReservedQuantity()
+    {
+        // arrange
+        Product product = productDao.getById(1);
+        StockReservations.Reservation reservation = stockReservations.reserve(product.getProductId(), product.getStock());
+
+        // act
+        stockReservations.release(reservation);
+
+        // assert
+        assertEquals(product.getStock(), stockReservations.reserve(product.getProductId(), product.getStock()).getQuantity());
+        assertNull(stockReservations.reserve(product.getProductId(), 1), "Because everything is reserved again.");
+    }
+
+    @Test
+    public void reserve_shouldNotWait_forAnAdjustOfAnotherProduct() throws Exception
+    {
+        // arrange
+        CountDownLatch adjusting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        // products 1 and 17 share a bin of the counters' map, which used to be locked for the whole adjust
+        Future<?> adjust = executor.submit(() -> stockReservations.adjust(1, () ->
+        {
+            adjusting.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }));
+        adjusting.await();
+
+        // act
+        Future<?> reserve = Executors.newSingleThreadExecutor().submit(() -> stockReservations.reserve(17, 1));
+
+        // assert
+        try
+        {
+            reserve.get(5, TimeUnit.SECONDS);
+        }
+        finally
+        {
+            release.countDown();
+            adjust.get();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void checkout_shouldTakeStock_onFlush()
+    {
+        // arrange
+        Product product = productDao.getById(1);
+        shoppingCartDao.addProductToCart(product, 1, 3);
+
+        // act
+        orderDao.checkout(1);
+        int beforeFlush = productDao.getById(1).getStock();
+        stockReservations.flush();
+
+        // assert
+        assertEquals(product.getStock(), beforeFlush, "Because the row is not touched by the checkout itself.");
+        assertEquals(product.getStock() - 3, productDao.getById(1).getStock());
+        assertEquals(0, stockReservations.getPendingOrders());
+    }
+
+    @Test
+    public void flush_shouldReport_theProductsItChanged()
+    {
+        // arrange
+        List<Integer> reported = new ArrayList<>();
+        stockReservations.setStockChangeListeners(List.of(reported::addAll));
+        Product product = productDao.getById(1);
+        shoppingCartDao.addProductToCart(product, 1, 3);
+        orderDao.checkout(1);
+
+        // act
+        boolean reportedBeforeFlush = !reported.isEmpty();
+        stockReservations.flush();
+
+        // assert
+        assertFalse(reportedBeforeFlush, "Because products.stock only moves when the order is flushed.");
+        assertEquals(List.of(product.getProductId()), reported, "Because cached copies of the product now show old stock.");
+    }
+
+    @Test
+    public void reconcile_shouldApply_ordersLeftUnflushed()
+    {
+        // arrange
+        Product product = productDao.getById(1);
+        shoppingCartDao.addProductToCart(product, 1, 2);
+        orderDao.checkout(1);
+
+        // act
+        new StockReservations(dataSource, true, 30, 500).reconcile();
+
+        // assert
+        assertEquals(product.getStock() - 2, productDao.getById(1).getStock(), "Because a restart applies what was never flushed.");
+    }
+}
@@ -0,0 +1,155 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.ObjectPostProcessor;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.yearup.controllers.AuthenticationController;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    public void stop() {
+        encoder.stop();
+    }
+
+    @Test
+    public void matches_shouldAcceptTheHash_fromEncode() {
+        // arrange
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 5000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        // act
+        String hash = encoder.encode("password");
+
+        // assert
+        assertTrue(encoder.matches("password", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(1, registry.get("auth.password.hash").tag("operation", "encode").timer().count());
+        assertEquals(2, registry.get("auth.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    public void encode_shouldBeRejected_whenThePoolAndQueueAreFull() throws Exception {
+        // arrange
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(release), 1, 1, 5000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("first"));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("second"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // act
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("third"),
+                "Because one hash is running and one is already waiting.");
+        release.countDown();
+
+        // assert
+        assertEquals("first", running.get(5, TimeUnit.SECONDS));
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("auth.password.rejected").counter().count());
+    }
+
+    @Test
+    public void encode_shouldGiveUp_afterTheMaximumWait() {
+        // arrange
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(release), 1, 1, 50);
+
+        // act
+        // assert
+        assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("slow"));
+        release.countDown();
+    }
+
+    @Test
+    public void login_shouldAnswer503_whileThePoolIsSaturated() throws Exception {
+        // arrange
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(release), 1, 1, 5000);
+
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+        provider.setUserDetailsService(username -> User.withUsername(username).password("password").roles("USER").build());
+        provider.setPasswordEncoder(encoder);
+        AuthenticationManagerBuilder authenticationManagerBuilder = new AuthenticationManagerBuilder(new ObjectPostProcessor<Object>() {
+            @Override
+            public <O> O postProcess(O object) {
+                return object;
+            }
+        });
+        authenticationManagerBuilder.authenticationProvider(provider);
+        authenticationManagerBuilder.build();
+        MockMvc mockMvc = MockMvcBuilders
+                .standaloneSetup(new AuthenticationController(null, authenticationManagerBuilder, null, null, null))
+                .build();
+
+        CompletableFuture.runAsync(() -> encoder.encode("running"));
+        CompletableFuture.runAsync(() -> encoder.encode("queued"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (encoder.getQueueDepth() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // act
+        // assert
+        try {
+            mockMvc.perform(post("/login")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"username\": \"user\", \"password\": \"password\"}"))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    /**
+     * Holds every hash until released, so the test decides when the pool frees up.
+     */
+    private static class BlockingEncoder implements PasswordEncoder {
+
+        private final CountDownLatch release;
+
+        BlockingEncoder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.yearup.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.yearup.data.UserDao;
+import org.yearup.models.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserModelDetailsServiceTest {
+
+    private CountingUserDao userDao;
+    private UserModelDetailsService service;
+
+    @BeforeEach
+    public void setup() {
+        userDao = new CountingUserDao();
+        service = new UserModelDetailsService(userDao, 60, 100);
+    }
+
+    @Test
+    public void loadUserByUsername_shouldOnlyQueryOnce_whileCached() {
+        // act
+        UserDetails first = service.loadUserByUsername("User");
+        ((AuthenticatedUser) first).eraseCredentials();
+        UserDetails second = service.loadUserByUsername("user");
+
+        // assert
+        assertEquals(1, userDao.queries, "Because the second login should be served from memory.");
+        assertEquals("hash", second.getPassword(), "Because erasing one login's credentials must not reach the cache.");
+        assertEquals(1, ((AuthenticatedUser) second).getId());
+    }
+
+    @Test
+    public void evict_shouldMakeTheNextLogin_readTheDatabase() {
+        // arrange
+        service.loadUserByUsername("user");
+
+        // act
+        service.evict("USER");
+        service.loadUserByUsername("user");
+
+        // assert
+        assertEquals(2, userDao.queries);
+    }
+
+    @Test
+    public void loadUserByUsername_shouldThrowNotFound_forUnknownUsers() {
+        // act
+        // assert
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+        assertThrows(UsernameNotFoundException.class, () -> service.loadUserByUsername("nobody"));
+        assertEquals(2, userDao.queries, "Because unknown users are never cached.");
+    }
+
+    private static class CountingUserDao implements UserDao {
+
+        private int queries;
+
+        @Override
+        public User getByUserName(String username) {
+            queries++;
+            return username.equals("user") ? new User(1, "user", "hash", "ROLE_USER") : null;
+        }
+
+        @Override
+        public List<User> getAll() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User getUserById(int userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getIdByUsername(String username) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User create(User user) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean exists(String username) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -4,7 +4,8 @@ CREATE TABLE users (
                        username VARCHAR(50) NOT NULL,
                        hashed_password VARCHAR(255) NOT NULL,
                        role VARCHAR(50) NOT NULL,
-                       PRIMARY KEY (user_id)
+                       PRIMARY KEY (user_id),
+                       UNIQUE INDEX ux_users_username (username)
 );
 
 CREATE TABLE profiles (
@@ -39,6 +40,11 @@ CREATE TABLE products (
                           stock INT NOT NULL DEFAULT 0,
                           featured BOOL NOT NULL DEFAULT 0,
                           PRIMARY KEY (product_id),
+                          INDEX idx_products_category_subcategory_price (category_id, subcategory, price),
+                          INDEX idx_products_category_price (category_id, price),
+                          INDEX idx_products_subcategory_price (subcategory, price),
+                          INDEX idx_products_price (price),
+                          INDEX idx_products_name (name),
                           FOREIGN KEY (category_id) REFERENCES categories(category_id)
 );
 
@@ -51,6 +57,7 @@ CREATE TABLE orders (
                         state VARCHAR(50) NOT NULL,
                         zip VARCHAR(20) NOT NULL,
                         shipping_amount DECIMAL(10, 2) NOT NULL DEFAULT 0,
+                        stock_flushed BOOL NOT NULL DEFAULT 1,
                         PRIMARY KEY (order_id),
                         FOREIGN KEY (user_id) REFERENCES users(user_id)
 );
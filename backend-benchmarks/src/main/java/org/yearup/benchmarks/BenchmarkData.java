@@ -0,0 +1,38 @@
+package org.yearup.benchmarks;
+
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed in-memory models shared by the benchmarks that do not touch the database.
+ */
+public final class BenchmarkData
+{
+    private BenchmarkData()
+    {
+    }
+
+    public static Product product(int productId)
+    {
+        return new Product(productId, "Product " + productId, BigDecimal.valueOf(100 + (productId * 7919L) % 100000, 2),
+                1 + productId % BenchmarkDatabase.CATEGORIES, "Benchmark product number " + productId,
+                BenchmarkDatabase.SUBCATEGORIES[productId % BenchmarkDatabase.SUBCATEGORIES.length],
+                1000, productId % 10 == 0, "product-" + productId + ".jpg");
+    }
+
+    public static ShoppingCart cart(int items)
+    {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 1; i <= items; i++)
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(product(i));
+            item.setQuantity(1 + i % 3);
+            cart.add(item);
+        }
+        return cart;
+    }
+}
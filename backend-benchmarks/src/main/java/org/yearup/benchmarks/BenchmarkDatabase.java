@@ -0,0 +1,138 @@
+package org.yearup.benchmarks;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection pool for the DAO benchmarks.
+ * Defaults to an in-memory H2 database in MySQL mode, created and seeded on open, so the benchmarks run anywhere.
+ * Pass -Dbenchmark.jdbc.url (with benchmark.jdbc.username / benchmark.jdbc.password) to run against a local MySQL
+ * that was created from one of the database/create_database_*.sql scripts instead; that database is used as is.
+ */
+public class BenchmarkDatabase implements AutoCloseable
+{
+    public static final String[] SUBCATEGORIES = { "Black", "White", "Gray", "Blue", "Red", "Silver" };
+    public static final int CATEGORIES = 3;
+
+    private static final String EMBEDDED_URL = "jdbc:h2:mem:benchmarks;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final BasicDataSource dataSource;
+    private final boolean embedded;
+
+    private BenchmarkDatabase(BasicDataSource dataSource, boolean embedded)
+    {
+        this.dataSource = dataSource;
+        this.embedded = embedded;
+    }
+
+    /**
+     * @param products how many products to seed the embedded database with; ignored for an external database.
+     */
+    public static BenchmarkDatabase open(int products)
+    {
+        String url = System.getProperty("benchmark.jdbc.url");
+        boolean embedded = url == null;
+
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(embedded ? EMBEDDED_URL : url);
+        dataSource.setUsername(System.getProperty("benchmark.jdbc.username", embedded ? "sa" : "root"));
+        dataSource.setPassword(System.getProperty("benchmark.jdbc.password", ""));
+        dataSource.setMaxTotal(Integer.getInteger("benchmark.jdbc.pool-size", 16));
+        if (!embedded)
+        {
+            dataSource.addConnectionProperty("rewriteBatchedStatements", "true");
+        }
+
+        BenchmarkDatabase database = new BenchmarkDatabase(dataSource, embedded);
+        if (embedded)
+        {
+            database.seed(products);
+        }
+        return database;
+    }
+
+    public BasicDataSource getDataSource()
+    {
+        return dataSource;
+    }
+
+    public boolean isEmbedded()
+    {
+        return embedded;
+    }
+
+    private void seed(int products)
+    {
+        try (Connection connection = dataSource.getConnection())
+        {
+            try (Statement statement = connection.createStatement())
+            {
+                statement.execute("DROP ALL OBJECTS");
+                for (String sql : readSchema().split(";"))
+                {
+                    if (!sql.isBlank())
+                    {
+                        statement.execute(sql);
+                    }
+                }
+                statement.execute("INSERT INTO users (username, hashed_password, role) VALUES ('user', 'x', 'ROLE_USER')");
+                statement.execute("INSERT INTO categories (name, description) VALUES " +
+                        "('Electronics', ''), ('Fashion', ''), ('Home & Kitchen', '')");
+            }
+
+            String sql = "INSERT INTO products (name, price, category_id, description, subcategory, image_url, stock, featured) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement statement = connection.prepareStatement(sql))
+            {
+                for (int i = 1; i <= products; i++)
+                {
+                    statement.setString(1, "Product " + i);
+                    statement.setBigDecimal(2, BigDecimal.valueOf(100 + (i * 7919L) % 100000, 2));
+                    statement.setInt(3, 1 + i % CATEGORIES);
+                    statement.setString(4, "Benchmark product number " + i);
+                    statement.setString(5, SUBCATEGORIES[i % SUBCATEGORIES.length]);
+                    statement.setString(6, "product-" + i + ".jpg");
+                    statement.setInt(7, 1000);
+                    statement.setBoolean(8, i % 10 == 0);
+                    statement.addBatch();
+
+                    if (i % 1000 == 0)
+                    {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String readSchema()
+    {
+        try (InputStream in = BenchmarkDatabase.class.getResourceAsStream("/benchmark-schema.sql"))
+        {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException
+    {
+        dataSource.close();
+    }
+}
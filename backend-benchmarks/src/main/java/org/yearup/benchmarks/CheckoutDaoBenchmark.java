@@ -0,0 +1,124 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.data.mysql.MySqlOrderDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.data.stock.StockReservations;
+import org.yearup.models.CartItemChange;
+import org.yearup.models.Order;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for MySqlOrderDao.checkout: many buyers checking out concurrently, reported as checkouts per second.
+ * Each benchmark thread is its own buyer with its own user and profile, and refills its cart before every checkout.
+ * Carts draw from the first hotProducts products, so a small value shows how checkout holds up when every buyer
+ * wants the same few items. With reservations off, stock is taken by guarded updates of products.stock inside each
+ * checkout; with it on, StockReservations takes it in memory and flushes it in batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(1)
+public class CheckoutDaoBenchmark
+{
+    private static final int ITEMS_PER_CART = 3;
+
+    @Param({ "10", "1000" })
+    public int hotProducts;
+
+    @Param({ "false", "true" })
+    public boolean reservations;
+
+    private BenchmarkDatabase database;
+    private StockReservations stockReservations;
+    private MySqlOrderDao orderDao;
+    private MySqlShoppingCartDao shoppingCartDao;
+
+    @Setup
+    public void setUp() throws SQLException
+    {
+        database = BenchmarkDatabase.open(1000);
+
+        // Enough stock that no run sells out part way through.
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate("UPDATE products SET stock = 100000000");
+        }
+
+        stockReservations = new StockReservations(database.getDataSource(), reservations, 30, 500);
+        stockReservations.start();
+        orderDao = new MySqlOrderDao(database.getDataSource(), stockReservations);
+        shoppingCartDao = new MySqlShoppingCartDao(database.getDataSource());
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        stockReservations.stop();
+        database.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Buyer
+    {
+        int userId;
+
+        @Setup
+        public void register(CheckoutDaoBenchmark benchmark) throws SQLException
+        {
+            try (Connection connection = benchmark.database.getDataSource().getConnection())
+            {
+                String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, 'x', 'ROLE_USER')";
+                try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+                {
+                    statement.setString(1, "buyer-" + System.nanoTime() + "-" + Thread.currentThread().getId());
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys())
+                    {
+                        keys.next();
+                        userId = keys.getInt(1);
+                    }
+                }
+
+                sql = "INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip) " +
+                        "VALUES (?, 'Bench', 'Buyer', '', '', '1 Main Street', 'Dallas', 'TX', '75051')";
+                try (PreparedStatement statement = connection.prepareStatement(sql))
+                {
+                    statement.setInt(1, userId);
+                    statement.executeUpdate();
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void fillCart(CheckoutDaoBenchmark benchmark)
+        {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<CartItemChange> changes = new ArrayList<>(ITEMS_PER_CART);
+            for (int i = 0; i < ITEMS_PER_CART; i++)
+            {
+                changes.add(new CartItemChange(1 + random.nextInt(benchmark.hotProducts), 1 + random.nextInt(3)));
+            }
+            benchmark.shoppingCartDao.updateCart(userId, changes);
+        }
+    }
+
+    @Benchmark
+    public Order checkout(Buyer buyer)
+    {
+        return orderDao.checkout(buyer.userId);
+    }
+}
@@ -0,0 +1,188 @@
+package org.yearup.benchmarks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * HTTP load test of a running API, for comparing Tomcat's worker pool with spring.threads.virtual.enabled.
+ * Unlike the JMH benchmarks it goes through the whole stack: Tomcat, Spring MVC, the DAOs and a real MySQL.
+ * Start the API once in each mode, and run this against it with a label naming the mode:
+ * java -cp target/benchmarks.jar org.yearup.benchmarks.HttpLoadTest platform 1000 5000 10000
+ * For each number of clients, that many clients connect at once and send requests back to back, first for
+ * benchmark.http.warmup-seconds without being measured, then for benchmark.http.seconds. Each request is drawn
+ * from benchmark.http.paths, where {id} is replaced by a product id up to benchmark.http.products, {cat} by a
+ * category id and {price} by a price, so most catalog searches miss the product cache and query the database.
+ * A line of requests per second, errors and latency percentiles is printed per number of clients.
+ * The clients run on virtual threads, so the machine running this needs no more than a few platform threads,
+ * but both it and the API need a file limit (ulimit -n) above the number of clients.
+ */
+public class HttpLoadTest
+{
+    private static final String DEFAULT_PATHS = "/products/{id},/products?cat={cat}&minPrice={price},/categories";
+
+    // latencies are counted in buckets of 100 microseconds, up to a minute
+    private static final long BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final int BUCKETS = (int) (TimeUnit.MINUTES.toNanos(1) / BUCKET_NANOS);
+
+    private final URI baseUrl;
+    private final String[] paths;
+    private final int products;
+    private final HttpClient client;
+
+    private HttpLoadTest(URI baseUrl, String[] paths, int products)
+    {
+        this.baseUrl = baseUrl;
+        this.paths = paths;
+        this.products = products;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: HttpLoadTest <label> [clients...]");
+            System.exit(1);
+        }
+
+        String label = args[0];
+        List<Integer> levels = new ArrayList<>();
+        for (int i = 1; i < args.length; i++)
+        {
+            levels.add(Integer.parseInt(args[i]));
+        }
+        if (levels.isEmpty())
+        {
+            levels = List.of(1000, 5000, 10000);
+        }
+
+        HttpLoadTest test = new HttpLoadTest(URI.create(System.getProperty("benchmark.http.url", "http://localhost:8080")),
+                System.getProperty("benchmark.http.paths", DEFAULT_PATHS).split(","),
+                Integer.getInteger("benchmark.http.products", 60));
+        int warmupSeconds = Integer.getInteger("benchmark.http.warmup-seconds", 10);
+        int seconds = Integer.getInteger("benchmark.http.seconds", 30);
+
+        System.out.println("label,clients,requests,errors,requests_per_second,p50_ms,p99_ms,max_ms");
+        for (int clients : levels)
+        {
+            test.run(clients, warmupSeconds);
+            Result result = test.run(clients, seconds);
+            System.out.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%.1f,%.1f,%.1f", label, clients,
+                    result.requests.get(), result.errors.get(), result.requests.get() / (double) seconds,
+                    result.percentile(0.50), result.percentile(0.99), result.maxMillis()));
+        }
+    }
+
+    private Result run(int clients, int seconds) throws InterruptedException
+    {
+        Result result = new Result();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int i = 0; i < clients; i++)
+            {
+                executor.execute(() -> {
+                    while (System.nanoTime() < deadline)
+                    {
+                        send(result);
+                    }
+                });
+            }
+        }
+        return result;
+    }
+
+    private void send(Result result)
+    {
+        HttpRequest request = HttpRequest.newBuilder(baseUrl.resolve(nextPath()))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        try
+        {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            result.record(System.nanoTime() - start, response.statusCode() >= 400);
+        }
+        catch (IOException e)
+        {
+            result.record(System.nanoTime() - start, true);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String nextPath()
+    {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return paths[random.nextInt(paths.length)]
+                .replace("{id}", String.valueOf(random.nextInt(1, products + 1)))
+                .replace("{cat}", String.valueOf(random.nextInt(1, BenchmarkDatabase.CATEGORIES + 1)))
+                .replace("{price}", random.nextInt(0, 100) + "." + random.nextInt(10, 100));
+    }
+
+    /**
+     * Counts of one run, shared by all of its clients.
+     */
+    private static class Result
+    {
+        private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        void record(long nanos, boolean error)
+        {
+            latencies.incrementAndGet((int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1));
+            max.accumulateAndGet(nanos, Math::max);
+            requests.incrementAndGet();
+            if (error)
+            {
+                errors.incrementAndGet();
+            }
+        }
+
+        /**
+         * @return the latency in milliseconds that the given share of requests finished within.
+         */
+        double percentile(double share)
+        {
+            long rank = (long) Math.ceil(requests.get() * share);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += latencies.get(i);
+                if (seen >= rank && seen > 0)
+                {
+                    return (i + 1) * BUCKET_NANOS / 1e6;
+                }
+            }
+            return maxMillis();
+        }
+
+        double maxMillis()
+        {
+            return max.get() / 1e6;
+        }
+    }
+}
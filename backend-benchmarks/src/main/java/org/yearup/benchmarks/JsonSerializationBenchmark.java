@@ -0,0 +1,64 @@
+package org.yearup.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the response bodies the API returns most often.
+ * The mapper is built the same way Spring Boot builds the one used by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark
+{
+    @Param({ "100" })
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private Product product;
+    private List<Product> products;
+    private ShoppingCart cart;
+
+    @Setup
+    public void setUp()
+    {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        product = BenchmarkData.product(1);
+        products = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            products.add(BenchmarkData.product(i));
+        }
+        cart = BenchmarkData.cart(size);
+    }
+
+    @Benchmark
+    public byte[] product() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] productList() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] shoppingCart() throws JsonProcessingException
+    {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+}
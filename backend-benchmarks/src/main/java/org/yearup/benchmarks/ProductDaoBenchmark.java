@@ -0,0 +1,79 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.data.ProductDao;
+import org.yearup.data.cache.CachingProductDao;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ProductSort;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end catalog reads through the DAOs against the benchmark database.
+ * "direct" goes to the database every time, "cached" is the CachingProductDao the application actually uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDaoBenchmark
+{
+    @Param({ "10000" })
+    public int products;
+
+    @Param({ "direct", "cached" })
+    public String dao;
+
+    private BenchmarkDatabase database;
+    private ProductDao productDao;
+    private int maxProductId;
+
+    @Setup
+    public void setUp()
+    {
+        database = BenchmarkDatabase.open(products);
+        MySqlProductDao mySqlProductDao = new MySqlProductDao(database.getDataSource());
+        productDao = dao.equals("cached") ? new CachingProductDao(mySqlProductDao, 10000, 1000) : mySqlProductDao;
+
+        List<Product> all = mySqlProductDao.search(null, null, null, null);
+        maxProductId = all.stream().mapToInt(Product::getProductId).max().orElseThrow();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        database.close();
+    }
+
+    @Benchmark
+    public Product getById()
+    {
+        return productDao.getById(ThreadLocalRandom.current().nextInt(1, maxProductId + 1));
+    }
+
+    @Benchmark
+    public List<Product> searchCategoryPriceRange()
+    {
+        return productDao.search(1, new BigDecimal("100.00"), new BigDecimal("150.00"), null);
+    }
+
+    @Benchmark
+    public ProductPage searchFirstPage()
+    {
+        return productDao.search(2, null, null, "Blue", ProductSort.PRICE, null, 100);
+    }
+
+    @Benchmark
+    public ProductPage listByCategoryFirstPage()
+    {
+        return productDao.listByCategoryId(3, ProductSort.ID, null, 100);
+    }
+}
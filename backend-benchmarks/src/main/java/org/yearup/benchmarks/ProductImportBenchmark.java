@@ -0,0 +1,110 @@
+package org.yearup.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.yearup.data.bulk.ProductCsv;
+import org.yearup.data.bulk.ProductImporter;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.models.ImportResult;
+import org.yearup.models.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a catalog file, reported in rows per second.
+ * "single" stores each product with MySqlProductDao.create, the way products were added before bulk import existed.
+ * "import" streams the same products as CSV through ProductImporter, which stores them in batches of chunkSize.
+ * chunkSize has no effect on "single".
+ * The imported products are deleted before every iteration, so the table stays the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductImportBenchmark
+{
+    private static final int ROWS = 5000;
+
+    @Param({ "single", "import" })
+    public String mode;
+
+    @Param({ "500", "2000" })
+    public int chunkSize;
+
+    private BenchmarkDatabase database;
+    private MySqlProductDao productDao;
+    private ProductImporter importer;
+    private List<Product> products;
+    private byte[] csv;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        database = BenchmarkDatabase.open(1000);
+        productDao = new MySqlProductDao(database.getDataSource());
+        importer = new ProductImporter(productDao, new ObjectMapper(), chunkSize, 100);
+
+        products = new ArrayList<>(ROWS);
+        StringWriter out = new StringWriter();
+        ProductCsv.writeHeader(out);
+        for (int i = 1; i <= ROWS; i++)
+        {
+            Product product = new Product(0, "Imported product " + i, BigDecimal.valueOf(100 + (i * 7919L) % 100000, 2),
+                    1 + i % BenchmarkDatabase.CATEGORIES, "Imported for the benchmark, number " + i,
+                    BenchmarkDatabase.SUBCATEGORIES[i % BenchmarkDatabase.SUBCATEGORIES.length], 1000, false,
+                    "imported-" + i + ".jpg");
+            products.add(product);
+            ProductCsv.write(out, product);
+        }
+        csv = out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void deleteImported() throws SQLException
+    {
+        try (Connection connection = database.getDataSource().getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate("DELETE FROM products WHERE name LIKE 'Imported product %'");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long load() throws IOException
+    {
+        if (mode.equals("single"))
+        {
+            long stored = 0;
+            for (Product product : products)
+            {
+                if (productDao.create(product) != null)
+                {
+                    stored++;
+                }
+            }
+            return stored;
+        }
+
+        ImportResult result = importer.importCsv(new ByteArrayInputStream(csv));
+        return result.getRowsImported();
+    }
+}
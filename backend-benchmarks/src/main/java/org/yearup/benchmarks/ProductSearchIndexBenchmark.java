@@ -0,0 +1,107 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.data.search.ProductSearchIndex;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Text search latency of ProductSearchIndex over a generated catalog, sampled so the report includes p99.
+ * Names combine an adjective, a brand and a noun, and descriptions draw from a vocabulary of a few thousand words,
+ * so every query word matches a realistic share of the catalog rather than nearly all or nearly none of it.
+ * The broad and short prefix cases are the worst ones: a noun alone matches one product in eighteen, and a two letter
+ * prefix of the description vocabulary expands to the most terms a prefix may.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProductSearchIndexBenchmark
+{
+    private static final String[] ADJECTIVES = { "wireless", "compact", "premium", "classic", "portable", "deluxe", "vintage",
+            "ergonomic", "rugged", "slim", "smart", "quiet", "turbo", "modular", "foldable", "heated", "digital", "analog" };
+    private static final String[] NOUNS = { "headset", "controller", "keyboard", "monitor", "blender", "kettle", "jacket",
+            "sneakers", "backpack", "lamp", "speaker", "charger", "router", "camera", "watch", "toaster", "mixer", "drone" };
+    private static final int BRANDS = 500;
+    private static final int VOCABULARY = 5000;
+
+    @Param({ "1000000" })
+    public int products;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp()
+    {
+        index = new ProductSearchIndex(null, true);
+        Random random = new Random(42);
+        for (int i = 1; i <= products; i++)
+        {
+            StringBuilder description = new StringBuilder();
+            for (int w = 0; w < 12; w++)
+            {
+                description.append("word").append(random.nextInt(VOCABULARY)).append(' ');
+            }
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " brand" + random.nextInt(BRANDS) + " "
+                    + NOUNS[random.nextInt(NOUNS.length)];
+
+            index.put(new Product(i, name, BigDecimal.valueOf(100 + random.nextInt(100000), 2),
+                    1 + i % BenchmarkDatabase.CATEGORIES, description.toString(),
+                    BenchmarkDatabase.SUBCATEGORIES[i % BenchmarkDatabase.SUBCATEGORIES.length], 1000, false, ""));
+        }
+    }
+
+    @Benchmark
+    public ProductPage exactWords()
+    {
+        return index.search("brand42 headset ", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage prefix()
+    {
+        return index.search("brand42 head", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage typo()
+    {
+        return index.search("brand42 hedset ", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage broadWord()
+    {
+        return index.search("headset ", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage broadWords()
+    {
+        return index.search("wireless headset ", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage shortPrefix()
+    {
+        return index.search("wo", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage broadWordShortPrefix()
+    {
+        return index.search("headset wo", null, null, null, null, null, 20);
+    }
+
+    @Benchmark
+    public ProductPage filtered()
+    {
+        return index.search("brand42 word17", 1, null, new BigDecimal("500"), null, null, 20);
+    }
+}
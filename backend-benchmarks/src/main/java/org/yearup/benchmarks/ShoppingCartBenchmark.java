@@ -0,0 +1,33 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.models.ShoppingCart;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoppingCartBenchmark
+{
+    @Param({ "1", "10", "100" })
+    public int items;
+
+    private ShoppingCart cart;
+
+    @Setup
+    public void setUp()
+    {
+        cart = BenchmarkData.cart(items);
+    }
+
+    @Benchmark
+    public BigDecimal getTotal()
+    {
+        return cart.getTotal();
+    }
+}
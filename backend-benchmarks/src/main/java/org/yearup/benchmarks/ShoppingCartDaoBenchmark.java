@@ -0,0 +1,80 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.data.cache.CachingShoppingCartDao;
+import org.yearup.data.cache.CartSnapshotCache;
+import org.yearup.data.mysql.MySqlProductDao;
+import org.yearup.data.mysql.MySqlShoppingCartDao;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cart reads and writes through MySqlShoppingCartDao against the benchmark database.
+ * With cached set, they go through CachingShoppingCartDao, which keeps the cart in memory and changes it in place.
+ * The cart is emptied and refilled to the same size before every iteration so each run sees the same data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShoppingCartDaoBenchmark
+{
+    private static final int USER_ID = 1;
+
+    @Param({ "10" })
+    public int cartSize;
+
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private BenchmarkDatabase database;
+    private ShoppingCartDao shoppingCartDao;
+    private Product product;
+
+    @Setup
+    public void setUp()
+    {
+        database = BenchmarkDatabase.open(1000);
+        MySqlShoppingCartDao mySqlShoppingCartDao = new MySqlShoppingCartDao(database.getDataSource());
+        shoppingCartDao = cached
+                ? new CachingShoppingCartDao(mySqlShoppingCartDao, new CartSnapshotCache(true, 33554432, 900))
+                : mySqlShoppingCartDao;
+        product = new MySqlProductDao(database.getDataSource()).getById(1);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillCart()
+    {
+        shoppingCartDao.emptyCart(USER_ID);
+        MySqlProductDao productDao = new MySqlProductDao(database.getDataSource());
+        for (int productId = 2; productId <= cartSize + 1; productId++)
+        {
+            shoppingCartDao.addProductToCart(productDao.getById(productId), USER_ID);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException
+    {
+        shoppingCartDao.emptyCart(USER_ID);
+        database.close();
+    }
+
+    @Benchmark
+    public ShoppingCart getByUserId()
+    {
+        return shoppingCartDao.getByUserId(USER_ID);
+    }
+
+    @Benchmark
+    public ShoppingCart addProductToCart()
+    {
+        return shoppingCartDao.addProductToCart(product, USER_ID);
+    }
+}
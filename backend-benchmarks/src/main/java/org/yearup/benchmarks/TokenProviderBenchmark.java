@@ -0,0 +1,85 @@
+package org.yearup.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.security.AuthenticatedUser;
+import org.yearup.security.jwt.TokenProvider;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing a JWT and of each way a request can turn one back into an Authentication.
+ * authenticate() is measured with the verified-token cache both warm and bypassed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenProviderBenchmark
+{
+    private TokenProvider tokenProvider;
+    private TokenProvider uncachedTokenProvider;
+    private Authentication authentication;
+    private String token;
+    private String otherToken;
+    private boolean useOtherToken;
+
+    @Setup
+    public void setUp()
+    {
+        byte[] secret = new byte[512];
+        new Random(42).nextBytes(secret);
+        String encodedSecret = Base64.getEncoder().encodeToString(secret);
+
+        tokenProvider = new TokenProvider(encodedSecret, 108000, 10000);
+        tokenProvider.afterPropertiesSet();
+        // alternating between two tokens with room for only one means every call misses the cache
+        uncachedTokenProvider = new TokenProvider(encodedSecret, 108000, 1);
+        uncachedTokenProvider.afterPropertiesSet();
+
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        AuthenticatedUser user = new AuthenticatedUser(1, "user", "", authorities);
+        authentication = new UsernamePasswordAuthenticationToken(user, "", authorities);
+        token = tokenProvider.createToken(authentication, false);
+        AuthenticatedUser otherUser = new AuthenticatedUser(2, "other", "", authorities);
+        otherToken = tokenProvider.createToken(new UsernamePasswordAuthenticationToken(otherUser, "", authorities), false);
+    }
+
+    @Benchmark
+    public String createToken()
+    {
+        return tokenProvider.createToken(authentication, false);
+    }
+
+    @Benchmark
+    public boolean validateToken()
+    {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Authentication getAuthentication()
+    {
+        return tokenProvider.getAuthentication(token);
+    }
+
+    @Benchmark
+    public Authentication authenticateCached()
+    {
+        return tokenProvider.authenticate(token);
+    }
+
+    @Benchmark
+    public Authentication authenticateUncached()
+    {
+        useOtherToken = !useOtherToken;
+        return uncachedTokenProvider.authenticate(useOtherToken ? otherToken : token);
+    }
+}
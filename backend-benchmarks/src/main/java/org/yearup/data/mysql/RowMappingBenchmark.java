@@ -0,0 +1,73 @@
+package org.yearup.data.mysql;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yearup.benchmarks.BenchmarkData;
+import org.yearup.models.Product;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps a page of product rows the way the DAOs do, without any database I/O.
+ * Lives in the DAO package because mapRow is not public.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark
+{
+    @Param({ "100" })
+    public int rows;
+
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp()
+    {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("product_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 100, 0);
+        resultSet.addColumn("price", Types.DECIMAL, 10, 2);
+        resultSet.addColumn("category_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("description", Types.VARCHAR, 65535, 0);
+        resultSet.addColumn("subcategory", Types.VARCHAR, 20, 0);
+        resultSet.addColumn("image_url", Types.VARCHAR, 200, 0);
+        resultSet.addColumn("stock", Types.INTEGER, 10, 0);
+        resultSet.addColumn("featured", Types.BOOLEAN, 1, 0);
+
+        for (int i = 1; i <= rows; i++)
+        {
+            Product product = BenchmarkData.product(i);
+            resultSet.addRow(product.getProductId(), product.getName(), product.getPrice(), product.getCategoryId(),
+                    product.getDescription(), product.getSubCategory(), product.getImageUrl(), product.getStock(),
+                    product.isFeatured());
+        }
+    }
+
+    @Benchmark
+    public void productDao(Blackhole blackhole) throws SQLException
+    {
+        resultSet.beforeFirst();
+        while (resultSet.next())
+        {
+            blackhole.consume(MySqlProductDao.mapRow(resultSet));
+        }
+    }
+
+    @Benchmark
+    public void shoppingCartDao(Blackhole blackhole) throws SQLException
+    {
+        resultSet.beforeFirst();
+        while (resultSet.next())
+        {
+            blackhole.consume(MySqlShoppingCartDao.mapRow(resultSet));
+        }
+    }
+}
@@ -11,6 +11,37 @@ function loadCategories(categories)
         option.innerText = c.name;
         select.appendChild(option);
     })
+
+    productService.loadFacets();
+}
+
+function showFacetCounts(facets)
+{
+    const categoryCounts = {};
+    facets.categories.forEach(f => categoryCounts[f.value] = f.count);
+
+    const subCategoryCounts = {};
+    facets.subCategories.forEach(f => subCategoryCounts[f.value.toLowerCase()] = f.count);
+
+    labelOptions('category-select', option => categoryCounts[option.value]);
+    labelOptions('subcategory-select', option => subCategoryCounts[option.dataset.label.toLowerCase()]);
+}
+
+function labelOptions(selectId, countOf)
+{
+    const select = document.getElementById(selectId);
+    if(!select) return;
+
+    [...select.options].forEach(option => {
+        if(option.value === "0" || option.value === "") return;
+
+        if(!option.dataset.label) option.dataset.label = option.innerText;
+        const count = countOf(option) || 0;
+
+        option.innerText = `${option.dataset.label} (${count})`;
+        // an empty choice would only lead to an empty page, unless it is the one already chosen
+        option.disabled = count === 0 && !option.selected;
+    });
 }
 
 document.addEventListener('DOMContentLoaded', () => {
@@ -4,6 +4,11 @@ class ProductService {
 
     photos = [];
 
+    // the pages of the current search loaded so far, and the X-Next-Cursor of the page after them
+    products = [];
+    nextCursor = undefined;
+    loading = false;
+
 
     filter = {
         cat: undefined,
@@ -89,24 +94,58 @@ class ProductService {
 
     search()
     {
-        const url = `${config.baseUrl}/products${this.filter.queryString()}`;
+        this.products = [];
+        this.nextCursor = undefined;
+        this.loadPage();
+        this.loadFacets();
+    }
+
+    loadMore()
+    {
+        if(this.nextCursor && !this.loading)
+        {
+            this.loadPage();
+        }
+    }
+
+    // the API sends one page at a time, with the cursor of the following page in the X-Next-Cursor header
+    loadPage()
+    {
+        let url = `${config.baseUrl}/products${this.filter.queryString()}`;
+        if(this.nextCursor)
+        {
+            const after = `after=${encodeURIComponent(this.nextCursor)}`;
+            url += url.includes("?") ? `&${after}` : `?${after}`;
+        }
+
+        // a new search replaces the list, so a page still arriving for the previous one is dropped
+        const loaded = this.products;
+        this.loading = true;
 
         axios.get(url)
              .then(response => {
-                 let data = {};
-                 data.products = response.data;
+                 if(loaded !== this.products) return;
+                 this.loading = false;
 
-                 data.products.forEach(product => {
+                 response.data.forEach(product => {
                      if(!this.hasPhoto(product.imageUrl))
                      {
                          product.imageUrl = "no-image.jpg";
                      }
                  })
 
+                 this.products = this.products.concat(response.data);
+                 this.nextCursor = response.headers["x-next-cursor"];
+
+                 let data = {};
+                 data.products = this.products;
+                 data.hasMore = this.nextCursor !== undefined;
+
                  templateBuilder.build('product', data, 'content', this.enableButtons);
 
              })
             .catch(error => {
+                if(loaded === this.products) this.loading = false;
 
                 const data = {
                     error: "Searching products failed."
@@ -116,6 +155,19 @@ class ProductService {
             });
     }
 
+    loadFacets()
+    {
+        const url = `${config.baseUrl}/products/facets${this.filter.queryString()}`;
+
+        axios.get(url)
+             .then(response => {
+                 showFacetCounts(response.data);
+             })
+             .catch(() => {
+                 // the filter panel still works without counts
+             });
+    }
+
     enableButtons()
     {
         const buttons = [...document.querySelectorAll(".add-button")];